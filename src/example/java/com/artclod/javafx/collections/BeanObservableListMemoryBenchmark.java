@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.collections.ListChangeListener;
+
+import contactmanager.model.Contact;
+
+/**
+ * Reports the heap used per row by a BeanObservableList of Contacts, on top of
+ * the Contacts themselves. Run with a large heap, e.g. -Xmx4g.
+ */
+public class BeanObservableListMemoryBenchmark {
+	private static final int ROWS = 1000000;
+
+	public static void main(String[] args) {
+		List<Contact> contacts = new ArrayList<Contact>(ROWS);
+		for (int i = 0; i < ROWS; i++) {
+			contacts.add(new Contact());
+		}
+
+		long beansOnly = usedHeap();
+		BeanObservableList<Contact> list = BeanObservableList.create(contacts, Contact.FIRST_NAME, Contact.LAST_NAME, Contact.FICTIONAL, Contact.AGE);
+		report("unobserved", beansOnly);
+
+		list.addListener(new ListChangeListener<Contact>() {
+			@Override
+			public void onChanged(Change<? extends Contact> c) {
+			}
+		});
+		report("observed (4 getters)", beansOnly);
+
+		list.setIdentityIndexed(true);
+		report("observed and identity indexed", beansOnly);
+
+		// keep everything reachable until the end
+		System.out.println(list.size() + contacts.size() > 0 ? "done" : "");
+	}
+
+	private static void report(String name, long baseline) {
+		System.out.printf("%-32s %6.1f bytes/row%n", name, (usedHeap() - baseline) / (double) ROWS);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -9,7 +9,9 @@ public class ContactManager {
 	private final ObservableList<Contact> contacts;
 
 	public ContactManager(Contact... contacts) {
-		this.contacts = BeanObservableList.create(asList(contacts), Contact.FIRST_NAME, Contact.LAST_NAME);
+		BeanObservableList<Contact> beanList = BeanObservableList.create(asList(contacts), Contact.FIRST_NAME, Contact.LAST_NAME);
+		beanList.setIdentityIndexed(true);
+		this.contacts = beanList;
 	}
 
 	public Contact createNewContact() {
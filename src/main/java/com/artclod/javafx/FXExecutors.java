@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx;
+
+import java.util.concurrent.Executor;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.util.Duration;
+
+/**
+ * {@link Executor}s which run their tasks on the JavaFX Application Thread.
+ */
+public final class FXExecutors {
+	private static final Executor NEXT_PULSE = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			Platform.runLater(command);
+		}
+	};
+
+	private FXExecutors() {
+	}
+
+	/**
+	 * @return an Executor that runs its tasks on the JavaFX Application Thread as soon as it can (generally the next pulse)
+	 */
+	public static Executor nextPulse() {
+		return NEXT_PULSE;
+	}
+
+	/**
+	 * @param delay how long to wait before running each task
+	 * @return an Executor that runs its tasks on the JavaFX Application Thread after the delay has passed
+	 */
+	public static Executor afterDelay(final Duration delay) {
+		if (delay == null) {
+			throw new NullPointerException("delay can not be null");
+		}
+		return new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				Platform.runLater(new Runnable() {
+					@Override
+					public void run() {
+						PauseTransition pause = new PauseTransition(delay);
+						pause.setOnFinished(new EventHandler<ActionEvent>() {
+							@Override
+							public void handle(ActionEvent event) {
+								command.run();
+							}
+						});
+						pause.play();
+					}
+				});
+			}
+		};
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.TreeMap;
+
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+
+import com.artclod.javafx.Releasable;
+import com.artclod.javafx.swap.beans.getter.PropertyGetter;
+
+/**
+ * The count, sum, average, min and max of a numeric property over the beans
+ * of a {@link BeanObservableList}, e.g. <code>new BeanAggregates&lt;Contact&gt;(contacts, Contact.AGE)</code>.
+ * Each change to the list or to a bean's property adjusts them: count, sum and
+ * average in O(1), min and max in O(log n) through a sorted count of the values.
+ * <p>
+ * Beans that are in the list more than once are counted every time, null
+ * values are not counted. The min, max and average are NaN while nothing is counted.
+ * 
+ * @param <B> The bean type
+ */
+public class BeanAggregates<B> implements Releasable {
+	private final ReadOnlyIntegerWrapper count = new ReadOnlyIntegerWrapper(this, "count");
+	private final ReadOnlyDoubleWrapper sum = new ReadOnlyDoubleWrapper(this, "sum");
+	private final ReadOnlyDoubleWrapper average = new ReadOnlyDoubleWrapper(this, "average", Double.NaN);
+	private final ReadOnlyDoubleWrapper min = new ReadOnlyDoubleWrapper(this, "min", Double.NaN);
+	private final ReadOnlyDoubleWrapper max = new ReadOnlyDoubleWrapper(this, "max", Double.NaN);
+	// how many times each value is counted
+	private final TreeMap<Double, int[]> values = new TreeMap<Double, int[]>();
+	private final BeanValueTracker<Number, B> tracker;
+	
+	public BeanAggregates(BeanObservableList<B> list, PropertyGetter<?, ? extends Number, B> getter) {
+		this.tracker = new BeanValueTracker<Number, B>(list, getter, new Callback());
+	}
+	
+	public ReadOnlyIntegerProperty countProperty() {
+		return count.getReadOnlyProperty();
+	}
+	
+	public int getCount() {
+		return count.get();
+	}
+	
+	public ReadOnlyDoubleProperty sumProperty() {
+		return sum.getReadOnlyProperty();
+	}
+	
+	public double getSum() {
+		return sum.get();
+	}
+	
+	public ReadOnlyDoubleProperty averageProperty() {
+		return average.getReadOnlyProperty();
+	}
+	
+	public double getAverage() {
+		return average.get();
+	}
+	
+	public ReadOnlyDoubleProperty minProperty() {
+		return min.getReadOnlyProperty();
+	}
+	
+	public double getMin() {
+		return min.get();
+	}
+	
+	public ReadOnlyDoubleProperty maxProperty() {
+		return max.getReadOnlyProperty();
+	}
+	
+	public double getMax() {
+		return max.get();
+	}
+	
+	@Override
+	public void release() {
+		tracker.release();
+	}
+	
+	/**
+	 * Counts the old value times fewer and the new value times more (either
+	 * can be null), then sets each property once so listeners never see a
+	 * value in between.
+	 */
+	private void count(Number oldValue, Number newValue, int times) {
+		int newCount = count.get();
+		double newSum = sum.get();
+		if (oldValue != null) {
+			tally(oldValue.doubleValue(), -times);
+			newCount -= times;
+			newSum -= times * oldValue.doubleValue();
+		}
+		if (newValue != null) {
+			tally(newValue.doubleValue(), times);
+			newCount += times;
+			newSum += times * newValue.doubleValue();
+		}
+		boolean empty = values.isEmpty();
+		count.set(newCount);
+		// back to exactly zero rather than the rounding left by adding and taking away doubles
+		sum.set(newCount == 0 ? 0 : newSum);
+		average.set(empty ? Double.NaN : newSum / newCount);
+		min.set(empty ? Double.NaN : values.firstKey());
+		max.set(empty ? Double.NaN : values.lastKey());
+	}
+	
+	private void tally(double number, int times) {
+		int[] counted = values.get(number);
+		if (counted == null) {
+			counted = new int[1];
+			values.put(number, counted);
+		}
+		counted[0] += times;
+		if (counted[0] == 0) {
+			values.remove(number);
+		}
+	}
+	
+	private class Callback implements BeanValueTracker.Callback<Number, B> {
+		@Override
+		public void added(B bean, Number value) {
+			count(null, value, 1);
+		}
+		
+		@Override
+		public void removed(B bean, Number value) {
+			count(value, null, 1);
+		}
+		
+		@Override
+		public void changed(B bean, Number oldValue, Number newValue) {
+			count(oldValue, newValue, tracker.occurrences(bean));
+		}
+	}
+}
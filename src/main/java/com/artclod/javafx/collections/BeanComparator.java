@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.artclod.javafx.swap.beans.getter.PropertyGetter;
+
+/**
+ * Compares beans by the values of their properties, e.g.
+ * <code>BeanComparator.by(Contact.LAST_NAME).thenBy(Contact.FIRST_NAME)</code>.
+ * Property values must be Comparable, nulls sort first.
+ * 
+ * @param <B> The bean type
+ */
+public class BeanComparator<B> implements Comparator<B> {
+	private final List<PropertyGetter<?, ?, B>> getters;
+	private final List<Boolean> ascending;
+	
+	public static <B> BeanComparator<B> by(PropertyGetter<?, ?, B> getter) {
+		return new BeanComparator<B>(Collections.<PropertyGetter<?, ?, B>> emptyList(), Collections.<Boolean> emptyList()).thenBy(getter);
+	}
+	
+	private BeanComparator(List<PropertyGetter<?, ?, B>> getters, List<Boolean> ascending) {
+		this.getters = getters;
+		this.ascending = ascending;
+	}
+	
+	/**
+	 * @return a comparator that compares by this getter's property when this one finds beans equal
+	 */
+	public BeanComparator<B> thenBy(PropertyGetter<?, ?, B> getter) {
+		return then(getter, true);
+	}
+	
+	/**
+	 * @return a comparator that compares by this getter's property, in descending order, when this one finds beans equal
+	 */
+	public BeanComparator<B> thenByDescending(PropertyGetter<?, ?, B> getter) {
+		return then(getter, false);
+	}
+	
+	/**
+	 * @return a comparator with the order of every property flipped
+	 */
+	public BeanComparator<B> descending() {
+		List<Boolean> flipped = new ArrayList<Boolean>();
+		for (Boolean up : ascending) {
+			flipped.add(!up);
+		}
+		return new BeanComparator<B>(getters, flipped);
+	}
+	
+	/**
+	 * @return the getters of the properties compared, so they can be watched
+	 */
+	public List<PropertyGetter<?, ?, B>> getGetters() {
+		return Collections.unmodifiableList(getters);
+	}
+	
+	/**
+	 * A null bean has null values, so it compares the same way as in {@link #keysOf(Object[])}.
+	 */
+	@Override
+	public int compare(B o1, B o2) {
+		for (int i = 0; i < getters.size(); i++) {
+			PropertyGetter<?, ?, B> getter = getters.get(i);
+			int compared = compareValues(o1 == null ? null : getter.get(o1).getValue(), o2 == null ? null : getter.get(o2).getValue());
+			if (compared != 0) {
+				return ascending.get(i) ? compared : -compared;
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * @return the values compared for each bean (by getter, then bean), so they are only read once
+	 */
+	Object[][] keysOf(Object[] beans) {
+		Object[][] keys = new Object[getters.size()][beans.length];
+		for (int g = 0; g < getters.size(); g++) {
+			PropertyGetter<?, ?, B> getter = getters.get(g);
+			for (int i = 0; i < beans.length; i++) {
+				@SuppressWarnings("unchecked")
+				B bean = (B) beans[i];
+				keys[g][i] = bean == null ? null : getter.get(bean).getValue();
+			}
+		}
+		return keys;
+	}
+	
+	/**
+	 * Compares two beans by the keys read with {@link #keysOf(Object[])}.
+	 */
+	int compareKeys(Object[][] keys, int index1, int index2) {
+		for (int g = 0; g < keys.length; g++) {
+			int compared = compareValues(keys[g][index1], keys[g][index2]);
+			if (compared != 0) {
+				return ascending.get(g) ? compared : -compared;
+			}
+		}
+		return 0;
+	}
+	
+	private BeanComparator<B> then(PropertyGetter<?, ?, B> getter, boolean up) {
+		if (getter == null) {
+			throw new NullPointerException("getter can not be null");
+		}
+		List<PropertyGetter<?, ?, B>> moreGetters = new ArrayList<PropertyGetter<?, ?, B>>(getters);
+		moreGetters.add(getter);
+		List<Boolean> moreAscending = new ArrayList<Boolean>(ascending);
+		moreAscending.add(up);
+		return new BeanComparator<B>(moreGetters, moreAscending);
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static int compareValues(Object value1, Object value2) {
+		if (value1 == null || value2 == null) {
+			return (value1 == null ? 0 : 1) - (value2 == null ? 0 : 1);
+		}
+		return ((Comparable) value1).compareTo(value2);
+	}
+}
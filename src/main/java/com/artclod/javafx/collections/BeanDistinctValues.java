@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.Collections;
+import java.util.Comparator;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
+
+import com.artclod.javafx.Releasable;
+import com.artclod.javafx.swap.beans.getter.PropertyGetter;
+
+/**
+ * The distinct values of a property over the beans of a {@link BeanObservableList},
+ * with how many beans have each, e.g. for the choices of a column filter. The
+ * counts follow every change, the sorted list of values only changes when a
+ * value appears or disappears.
+ * 
+ * @param <K> The property value type
+ * @param <B> The bean type
+ */
+public class BeanDistinctValues<K, B> implements Releasable {
+	private final Comparator<? super K> comparator;
+	private final ObservableMap<K, Integer> counts = FXCollections.observableHashMap();
+	private final ObservableList<K> values = FXCollections.observableArrayList();
+	// handed out, so listeners added to them stay with this object
+	private final ObservableMap<K, Integer> readOnlyCounts = FXCollections.unmodifiableObservableMap(counts);
+	private final ObservableList<K> readOnlyValues = FXCollections.unmodifiableObservableList(values);
+	private final BeanValueTracker<K, B> tracker;
+	
+	/**
+	 * Sorts the values by their natural ordering, they must be Comparable. Null sorts first.
+	 */
+	public BeanDistinctValues(BeanObservableList<B> list, PropertyGetter<?, ? extends K, B> getter) {
+		this(list, getter, new Comparator<K>() {
+			@Override
+			public int compare(K o1, K o2) {
+				return BeanComparator.compareValues(o1, o2);
+			}
+		});
+	}
+	
+	public BeanDistinctValues(BeanObservableList<B> list, PropertyGetter<?, ? extends K, B> getter, Comparator<? super K> comparator) {
+		this.comparator = comparator;
+		this.tracker = new BeanValueTracker<K, B>(list, getter, new Callback());
+	}
+	
+	/**
+	 * @return the distinct values in order, read only
+	 */
+	public ObservableList<K> getValues() {
+		return readOnlyValues;
+	}
+	
+	/**
+	 * @return how many beans have each value, read only
+	 */
+	public ObservableMap<K, Integer> getCounts() {
+		return readOnlyCounts;
+	}
+	
+	public int getCount(K value) {
+		Integer count = counts.get(value);
+		return count == null ? 0 : count;
+	}
+	
+	@Override
+	public void release() {
+		tracker.release();
+	}
+	
+	private void count(K value, int times) {
+		int count = getCount(value) + times;
+		if (count > 0) {
+			if (counts.put(value, count) == null) {
+				values.add(-Collections.binarySearch(values, value, comparator) - 1, value);
+			}
+		} else {
+			counts.remove(value);
+			values.remove(Collections.binarySearch(values, value, comparator));
+		}
+	}
+	
+	private class Callback implements BeanValueTracker.Callback<K, B> {
+		@Override
+		public void added(B bean, K value) {
+			count(value, 1);
+		}
+		
+		@Override
+		public void removed(B bean, K value) {
+			count(value, -1);
+		}
+		
+		@Override
+		public void changed(B bean, K oldValue, K newValue) {
+			int occurrences = tracker.occurrences(bean);
+			count(oldValue, -occurrences);
+			count(newValue, occurrences);
+		}
+	}
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
+
+import com.artclod.javafx.Releasable;
+import com.artclod.javafx.swap.beans.getter.Getter;
+import com.artclod.javafx.swap.beans.getter.PropertyGetter;
+
+/**
+ * The beans of a {@link BeanObservableList} grouped by the value of a
+ * property (or a key worked out from it, like the initial of a name). When
+ * a bean's key changes only that bean moves from one group to the other.
+ * Groups are added to the map when their first bean arrives and removed when
+ * their last bean leaves.
+ * <p>
+ * Within a group beans are in the order they joined it. Each group knows
+ * where each of its beans is, so taking a bean out doesn't search the group.
+ * 
+ * @param <K> The group key type
+ * @param <B> The bean type
+ */
+public class BeanGroups<K, B> implements Releasable {
+	private final Map<K, Group> groups = new HashMap<K, Group>();
+	// the map handed out, the groups are read only
+	private final ObservableMap<K, ObservableList<B>> readOnlyGroups = FXCollections.observableHashMap();
+	private final BeanValueTracker<?, B> tracker;
+	
+	/**
+	 * Groups the beans by the value of the property.
+	 */
+	public BeanGroups(BeanObservableList<B> list, PropertyGetter<?, ? extends K, B> getter) {
+		this(list, getter, BeanGroups.<K> sameKey());
+	}
+	
+	/**
+	 * Groups the beans by a key worked out from the value of the property.
+	 */
+	public <V> BeanGroups(BeanObservableList<B> list, PropertyGetter<?, V, B> getter, Getter<? extends K, ? super V> keyOf) {
+		this.tracker = new BeanValueTracker<V, B>(list, getter, new Callback<V>(keyOf));
+	}
+	
+	/**
+	 * @return the groups by key, this map and the groups should not be modified
+	 */
+	public ObservableMap<K, ObservableList<B>> getGroups() {
+		return readOnlyGroups;
+	}
+	
+	/**
+	 * @return the beans with this key, an empty list if there are none
+	 */
+	public ObservableList<B> getGroup(K key) {
+		ObservableList<B> group = readOnlyGroups.get(key);
+		return group == null ? FXCollections.<B> emptyObservableList() : group;
+	}
+	
+	public int getCount(K key) {
+		Group group = groups.get(key);
+		return group == null ? 0 : group.size();
+	}
+	
+	@Override
+	public void release() {
+		tracker.release();
+	}
+	
+	private void join(K key, B bean, int times) {
+		Group group = groups.get(key);
+		if (group == null) {
+			group = new Group();
+			groups.put(key, group);
+			group.join(bean, times);
+			readOnlyGroups.put(key, group);
+		} else {
+			group.join(bean, times);
+		}
+	}
+	
+	private void leave(K key, B bean, int times) {
+		Group group = groups.get(key);
+		if (group.size() == times) {
+			// anyone still holding on to the group sees it emptied
+			group.empty();
+			groups.remove(key);
+			readOnlyGroups.remove(key);
+			return;
+		}
+		group.leave(bean, times);
+	}
+	
+	private static <K> Getter<K, K> sameKey() {
+		return new Getter<K, K>() {
+			@Override
+			public K get(K value) {
+				return value;
+			}
+		};
+	}
+	
+	private class Callback<V> implements BeanValueTracker.Callback<V, B> {
+		private final Getter<? extends K, ? super V> keyOf;
+		
+		private Callback(Getter<? extends K, ? super V> keyOf) {
+			this.keyOf = keyOf;
+		}
+		
+		@Override
+		public void added(B bean, V value) {
+			join(keyOf.get(value), bean, 1);
+		}
+		
+		@Override
+		public void removed(B bean, V value) {
+			leave(keyOf.get(value), bean, 1);
+		}
+		
+		@Override
+		public void changed(B bean, V oldValue, V newValue) {
+			K oldKey = keyOf.get(oldValue);
+			K newKey = keyOf.get(newValue);
+			if (!Objects.equals(oldKey, newKey)) {
+				int occurrences = tracker.occurrences(bean);
+				leave(oldKey, bean, occurrences);
+				join(newKey, bean, occurrences);
+			}
+		}
+	}
+	
+	/**
+	 * The beans with one key, with the members of each bean so they can be
+	 * found without searching the group.
+	 */
+	private class Group extends ReadOnlyObservableListBase<B> {
+		private final ChunkedList<Member<B>> members = new ChunkedList<Member<B>>();
+		// in the order they joined
+		private final IdentityHashMap<B, List<Member<B>>> membersOf = new IdentityHashMap<B, List<Member<B>>>();
+		
+		@Override
+		public B get(int index) {
+			return members.get(index).bean;
+		}
+		
+		@Override
+		public int size() {
+			return members.size();
+		}
+		
+		private void join(B bean, int times) {
+			List<Member<B>> beanMembers = membersOf.get(bean);
+			if (beanMembers == null) {
+				beanMembers = new ArrayList<Member<B>>(times);
+				membersOf.put(bean, beanMembers);
+			}
+			List<Member<B>> added = new ArrayList<Member<B>>(times);
+			for (int i = 0; i < times; i++) {
+				added.add(new Member<B>(bean));
+			}
+			beanMembers.addAll(added);
+			int from = members.size();
+			members.addAll(from, added);
+			fire(new RecordedChange.Builder<B>().added(from, members.size()));
+		}
+		
+		// takes out the members of the bean that joined last
+		private void leave(B bean, int times) {
+			List<Member<B>> beanMembers = membersOf.get(bean);
+			int[] indexes = new int[times];
+			for (int i = 0; i < times; i++) {
+				indexes[i] = members.indexOf(beanMembers.remove(beanMembers.size() - 1));
+			}
+			if (beanMembers.isEmpty()) {
+				membersOf.remove(bean);
+			}
+			Arrays.sort(indexes);
+			for (int i = indexes.length - 1; i >= 0; i--) {
+				members.remove(indexes[i], indexes[i] + 1);
+			}
+			RecordedChange.Builder<B> change = new RecordedChange.Builder<B>();
+			// each index is relative to the list after the members before it are gone
+			for (int i = 0; i < indexes.length; i++) {
+				change.removed(indexes[i] - i, Collections.singletonList(bean));
+			}
+			fire(change);
+		}
+		
+		private void empty() {
+			List<B> removed = new ArrayList<B>(this);
+			members.remove(0, members.size());
+			membersOf.clear();
+			fire(new RecordedChange.Builder<B>().removed(0, removed));
+		}
+	}
+	
+	private static class Member<B> extends ChunkedList.Element {
+		private final B bean;
+		
+		private Member(B bean) {
+			this.bean = bean;
+		}
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javafx.beans.property.Property;
+
+import com.artclod.javafx.FXExecutors;
+import com.artclod.javafx.swap.beans.getter.PropertyGetter;
+
+/**
+ * Feeds changes made on other threads into a {@link BeanObservableList}. Adds,
+ * removes and property writes can be queued from any thread, they are applied
+ * in order on the executor (the JavaFX Application Thread by default) in time
+ * slices so a burst can not stall the UI. Runs of adds and of removes are
+ * applied as one change to the list.
+ * <p>
+ * Producers block once capacity operations are waiting, until the list catches
+ * up. Producers must therefore not run on the executor's thread.
+ * 
+ * @param <B> The bean type
+ */
+public class BeanIngestionQueue<B> {
+	public static final int DEFAULT_CAPACITY = 10000;
+	public static final long DEFAULT_SLICE_MILLIS = 8;
+	
+	private final BeanObservableList<B> list;
+	private final Executor executor;
+	private final long sliceNanos;
+	private final ConcurrentLinkedQueue<Operation<B>> queue = new ConcurrentLinkedQueue<Operation<B>>();
+	private final Semaphore space;
+	private final int capacity;
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final Runnable drain = new Runnable() {
+		@Override
+		public void run() {
+			drain();
+		}
+	};
+	
+	public BeanIngestionQueue(BeanObservableList<B> list) {
+		this(list, FXExecutors.nextPulse(), DEFAULT_CAPACITY, DEFAULT_SLICE_MILLIS);
+	}
+	
+	/**
+	 * @param executor where the changes are applied to the list
+	 * @param capacity how many operations can wait before producers block
+	 * @param sliceMillis how long each run of the executor can spend applying changes
+	 */
+	public BeanIngestionQueue(BeanObservableList<B> list, Executor executor, int capacity, long sliceMillis) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1 but was " + capacity);
+		}
+		if (sliceMillis < 0) {
+			throw new IllegalArgumentException("sliceMillis can not be negative but was " + sliceMillis);
+		}
+		this.list = list;
+		this.executor = executor;
+		this.capacity = capacity;
+		this.space = new Semaphore(capacity);
+		this.sliceNanos = TimeUnit.MILLISECONDS.toNanos(sliceMillis);
+	}
+	
+	/**
+	 * Queues adding the bean to the end of the list, waiting while the queue is full.
+	 */
+	public void add(B bean) throws InterruptedException {
+		offer(new Operation<B>(Operation.ADD, bean, null, null));
+	}
+	
+	/**
+	 * Queues removing every occurrence of the bean (by identity) from the list, waiting while the queue is full.
+	 */
+	public void remove(B bean) throws InterruptedException {
+		offer(new Operation<B>(Operation.REMOVE, bean, null, null));
+	}
+	
+	/**
+	 * Queues setting the property of the bean, waiting while the queue is full.
+	 */
+	public <T> void set(B bean, PropertyGetter<? extends Property<T>, T, B> getter, T value) throws InterruptedException {
+		offer(new Operation<B>(Operation.SET, bean, getter, value));
+	}
+	
+	/**
+	 * @return how many operations are waiting to be applied
+	 */
+	public int getPending() {
+		return capacity - space.availablePermits();
+	}
+	
+	private void offer(Operation<B> operation) throws InterruptedException {
+		space.acquire();
+		queue.add(operation);
+		schedule();
+	}
+	
+	private void schedule() {
+		if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+			executor.execute(drain);
+		}
+	}
+	
+	/**
+	 * Applies operations until the slice runs out. An operation that throws is
+	 * reported to the thread's uncaught exception handler and the ones after
+	 * it are still applied.
+	 */
+	private void drain() {
+		try {
+			long end = System.nanoTime() + sliceNanos;
+			List<B> added = new ArrayList<B>();
+			Set<B> removed = Collections.newSetFromMap(new IdentityHashMap<B, Boolean>());
+			Operation<B> operation;
+			do {
+				operation = queue.poll();
+				if (operation == null) {
+					break;
+				}
+				try {
+					if (operation.kind != Operation.ADD) {
+						addAll(added);
+					}
+					if (operation.kind != Operation.REMOVE) {
+						removeAll(removed);
+					}
+					if (operation.kind == Operation.ADD) {
+						added.add(operation.bean);
+					} else if (operation.kind == Operation.REMOVE) {
+						removed.add(operation.bean);
+					} else {
+						operation.write();
+					}
+				} catch (RuntimeException e) {
+					report(e);
+				} finally {
+					space.release();
+				}
+			} while (System.nanoTime() < end);
+			addAll(added);
+			removeAll(removed);
+		} finally {
+			scheduled.set(false);
+			// operations queued while draining, or left over when the slice ran out
+			schedule();
+		}
+	}
+	
+	private void addAll(List<B> added) {
+		if (added.isEmpty()) {
+			return;
+		}
+		try {
+			list.addAll(added);
+		} catch (RuntimeException e) {
+			report(e);
+		} finally {
+			added.clear();
+		}
+	}
+	
+	private void removeAll(Set<B> removed) {
+		if (removed.isEmpty()) {
+			return;
+		}
+		try {
+			list.removeAll(removed);
+		} catch (RuntimeException e) {
+			report(e);
+		} finally {
+			removed.clear();
+		}
+	}
+	
+	private static void report(RuntimeException e) {
+		Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+	}
+	
+	private static class Operation<B> {
+		private static final int ADD = 0;
+		private static final int REMOVE = 1;
+		private static final int SET = 2;
+		
+		private final int kind;
+		private final B bean;
+		private final PropertyGetter<?, ?, B> getter;
+		private final Object value;
+		
+		private Operation(int kind, B bean, PropertyGetter<?, ?, B> getter, Object value) {
+			this.kind = kind;
+			this.bean = bean;
+			this.getter = getter;
+			this.value = value;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private void write() {
+			((Property<Object>) getter.get(bean)).setValue(value);
+		}
+	}
+}
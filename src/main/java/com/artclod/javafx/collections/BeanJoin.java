@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javafx.collections.ListChangeListener;
+
+import com.artclod.javafx.Releasable;
+import com.artclod.javafx.swap.beans.getter.PropertyGetter;
+
+/**
+ * Joins the beans of two {@link BeanObservableList}s that have equal keys,
+ * e.g. orders to the contacts that placed them, as a list of rows. Both sides
+ * are hashed by key so adding, removing or re-keying a bean only adds and
+ * removes the rows of that bean. New rows are added at the end.
+ * <p>
+ * Beans are compared by identity and joined once however many times they are
+ * in their list. Null keys are not joined.
+ * 
+ * @param <K> The key type
+ * @param <L> The left bean type
+ * @param <R> The right bean type
+ */
+public class BeanJoin<K, L, R> extends ReadOnlyObservableListBase<BeanJoin.Row<L, R>> implements Releasable {
+	private final ChunkedList<Row<L, R>> rows = new ChunkedList<Row<L, R>>();
+	private final Side<L> left = new Side<L>();
+	private final Side<R> right = new Side<R>();
+	// the rows a change of either list removes and adds, applied together once the list has been handled
+	private final List<Row<L, R>> removedRows = new ArrayList<Row<L, R>>();
+	private final Set<Row<L, R>> addedRows = new LinkedHashSet<Row<L, R>>();
+	private final BeanValueTracker<K, L> leftTracker;
+	private final BeanValueTracker<K, R> rightTracker;
+	private final BeanObservableList<L> leftList;
+	private final BeanObservableList<R> rightList;
+	private final ListChangeListener<Object> fireChange = new ListChangeListener<Object>() {
+		@Override
+		public void onChanged(Change<? extends Object> c) {
+			fireChange();
+		}
+	};
+	
+	public BeanJoin(BeanObservableList<L> leftList, PropertyGetter<?, ? extends K, L> leftKey, BeanObservableList<R> rightList, PropertyGetter<?, ? extends K, R> rightKey) {
+		this.leftList = leftList;
+		this.rightList = rightList;
+		this.leftTracker = new BeanValueTracker<K, L>(leftList, leftKey, new LeftCallback());
+		this.rightTracker = new BeanValueTracker<K, R>(rightList, rightKey, new RightCallback());
+		// registered after the trackers so the rows they changed are fired once the list has been handled
+		leftList.addListener(fireChange);
+		rightList.addListener(fireChange);
+		// the rows that were there from the start aren't changes
+		applyRows(new RecordedChange.Builder<Row<L, R>>());
+	}
+	
+	@Override
+	public Row<L, R> get(int index) {
+		return rows.get(index);
+	}
+	
+	@Override
+	public int size() {
+		return rows.size();
+	}
+	
+	@Override
+	public void release() {
+		leftTracker.release();
+		rightTracker.release();
+		leftList.removeListener(fireChange);
+		rightList.removeListener(fireChange);
+	}
+	
+	private void fireChange() {
+		RecordedChange.Builder<Row<L, R>> change = new RecordedChange.Builder<Row<L, R>>();
+		applyRows(change);
+		fire(change);
+	}
+	
+	// removes the rows in ascending order, then adds the new ones at the end
+	private void applyRows(RecordedChange.Builder<Row<L, R>> change) {
+		int[] indexes = new int[removedRows.size()];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = rows.indexOf(removedRows.get(i));
+		}
+		removedRows.clear();
+		Arrays.sort(indexes);
+		List<Row<L, R>> removed = new ArrayList<Row<L, R>>(indexes.length);
+		for (int i = indexes.length - 1; i >= 0; i--) {
+			removed.add(rows.remove(indexes[i], indexes[i] + 1).get(0));
+		}
+		Collections.reverse(removed);
+		// each index is relative to the list after the rows before it are gone
+		for (int i = 0; i < indexes.length; i++) {
+			change.removed(indexes[i] - i, Collections.singletonList(removed.get(i)));
+		}
+		if (!addedRows.isEmpty()) {
+			int from = rows.size();
+			rows.addAll(rows.size(), new ArrayList<Row<L, R>>(addedRows));
+			addedRows.clear();
+			change.added(from, rows.size());
+		}
+	}
+	
+	private void joinLeft(L bean, K key) {
+		left.add(bean, key);
+		for (R match : right.get(key)) {
+			addRow(new Row<L, R>(bean, match));
+		}
+	}
+	
+	private void joinRight(R bean, K key) {
+		right.add(bean, key);
+		for (L match : left.get(key)) {
+			addRow(new Row<L, R>(match, bean));
+		}
+	}
+	
+	private void addRow(Row<L, R> row) {
+		left.rowsOf(row.left).add(row);
+		right.rowsOf(row.right).add(row);
+		addedRows.add(row);
+	}
+	
+	private void removeRows(List<Row<L, R>> removed) {
+		for (Row<L, R> row : removed) {
+			left.removeRow(row.left, row);
+			right.removeRow(row.right, row);
+			// a row added by the same change never gets to the list
+			if (!addedRows.remove(row)) {
+				removedRows.add(row);
+			}
+		}
+	}
+	
+	/**
+	 * A left bean joined to a right bean.
+	 */
+	public static class Row<L, R> extends ChunkedList.Element {
+		private final L left;
+		private final R right;
+		
+		private Row(L left, R right) {
+			this.left = left;
+			this.right = right;
+		}
+		
+		public L getLeft() {
+			return left;
+		}
+		
+		public R getRight() {
+			return right;
+		}
+		
+		@Override
+		public String toString() {
+			return left + " - " + right;
+		}
+	}
+	
+	// the beans of one side by key, and the rows each bean is in
+	private class Side<B> {
+		private final Map<K, Set<B>> beans = new HashMap<K, Set<B>>();
+		private final IdentityHashMap<B, List<Row<L, R>>> rows = new IdentityHashMap<B, List<Row<L, R>>>();
+		
+		private Set<B> get(K key) {
+			Set<B> keyed = beans.get(key);
+			return keyed == null ? Collections.<B> emptySet() : keyed;
+		}
+		
+		private void add(B bean, K key) {
+			Set<B> keyed = beans.get(key);
+			if (keyed == null) {
+				keyed = Collections.newSetFromMap(new IdentityHashMap<B, Boolean>());
+				beans.put(key, keyed);
+			}
+			keyed.add(bean);
+		}
+		
+		// takes the bean out and returns its rows, which are still to be removed
+		private List<Row<L, R>> remove(B bean, K key) {
+			Set<B> keyed = beans.get(key);
+			keyed.remove(bean);
+			if (keyed.isEmpty()) {
+				beans.remove(key);
+			}
+			List<Row<L, R>> beanRows = rows.get(bean);
+			return beanRows == null ? Collections.<Row<L, R>> emptyList() : new ArrayList<Row<L, R>>(beanRows);
+		}
+		
+		private List<Row<L, R>> rowsOf(B bean) {
+			List<Row<L, R>> beanRows = rows.get(bean);
+			if (beanRows == null) {
+				beanRows = new ArrayList<Row<L, R>>(1);
+				rows.put(bean, beanRows);
+			}
+			return beanRows;
+		}
+		
+		private void removeRow(B bean, Row<L, R> row) {
+			List<Row<L, R>> beanRows = rows.get(bean);
+			beanRows.remove(row);
+			if (beanRows.isEmpty()) {
+				rows.remove(bean);
+			}
+		}
+	}
+	
+	private class LeftCallback implements BeanValueTracker.Callback<K, L> {
+		@Override
+		public void added(L bean, K key) {
+			// a bean that is already in the list is already joined
+			if (key != null && !left.get(key).contains(bean)) {
+				joinLeft(bean, key);
+			}
+		}
+		
+		@Override
+		public void removed(L bean, K key) {
+			if (key != null && leftTracker.occurrences(bean) == 0) {
+				removeRows(left.remove(bean, key));
+			}
+		}
+		
+		@Override
+		public void changed(L bean, K oldKey, K newKey) {
+			if (oldKey != null) {
+				removeRows(left.remove(bean, oldKey));
+			}
+			if (newKey != null) {
+				joinLeft(bean, newKey);
+			}
+		}
+	}
+	
+	private class RightCallback implements BeanValueTracker.Callback<K, R> {
+		@Override
+		public void added(R bean, K key) {
+			if (key != null && !right.get(key).contains(bean)) {
+				joinRight(bean, key);
+			}
+		}
+		
+		@Override
+		public void removed(R bean, K key) {
+			if (key != null && rightTracker.occurrences(bean) == 0) {
+				removeRows(right.remove(bean, key));
+			}
+		}
+		
+		@Override
+		public void changed(R bean, K oldKey, K newKey) {
+			if (oldKey != null) {
+				removeRows(right.remove(bean, oldKey));
+			}
+			if (newKey != null) {
+				joinRight(bean, newKey);
+			}
+		}
+	}
+}
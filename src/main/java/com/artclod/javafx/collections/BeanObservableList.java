@@ -27,29 +27,85 @@ package com.artclod.javafx.collections;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
 import javafx.beans.property.Property;
-import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableBooleanValue;
+import javafx.beans.value.ObservableDoubleValue;
+import javafx.beans.value.ObservableFloatValue;
+import javafx.beans.value.ObservableIntegerValue;
+import javafx.beans.value.ObservableLongValue;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 
+import com.artclod.javafx.FXExecutors;
 import com.artclod.javafx.Releasable;
 import com.artclod.javafx.swap.beans.getter.Getter;
+import com.artclod.javafx.swap.beans.getter.PropertyGetter;
 
 public class BeanObservableList<B> implements ObservableList<B> {
+	// beans handled per fork join task by updateWhere and sort
+	private static final int BULK_CHUNK = 4096;
+	private static ForkJoinPool bulkPool;
+	
 	private final ObservableList<B> underlyingList;
-	private final Set<Getter<? extends Property<?>, B>> propertyGetters = new HashSet<Getter<? extends Property<?>, B>>();
-	private final List<BeanPropertyListener> beanListeners = new ArrayList<BeanPropertyListener>();
+	private final ObservableListListeners<B> listeners = new ObservableListListeners<B>(this);
+	// ordered so each getter has a stable bit in the dirty property bitsets
+	private final List<Getter<? extends Property<?>, B>> propertyGetters = new ArrayList<Getter<? extends Property<?>, B>>();
+	// chunked so inserting and removing ranges of beans doesn't shift every listener after them
+	private final ChunkedList<BeanPropertyListener> beanListeners = new ChunkedList<BeanPropertyListener>();
+	// maps beans to their listener, or to a List of listeners for beans that are in the list more than once
+	private IdentityHashMap<B, Object> identityIndex;
+	private final Set<BeanPropertyListener> updatedBeanListeners = new HashSet<BeanPropertyListener>();
+	// bits (one per getter) for the properties that changed, only rows with changes are in the map
+	private IdentityHashMap<BeanPropertyListener, BitSet> dirtyProperties;
+	// properties that have invalidated and need to be validated so they fire again
+	private final List<Observable> invalidatedProperties = new ArrayList<Observable>();
+	// getters derived views depend on (with how many views), they are watched on every bean even with a viewport
+	private final Map<Getter<? extends Property<?>, B>, Integer> viewGetters = new HashMap<Getter<? extends Property<?>, B>, Integer>();
+	// view getters that were not watched for anyone else, so they stop being watched with the last view
+	private final Set<Getter<? extends Property<?>, B>> viewOnlyGetters = new HashSet<Getter<? extends Property<?>, B>>();
+	// while there is a viewport only these bean listeners are attached, otherwise (null) all of them are
+	private Set<BeanPropertyListener> viewportBeanListeners;
+	private int viewportFirst;
+	private int viewportLast;
+	private int viewportMargin;
+	private Executor updateExecutor;
+	private boolean flushScheduled = false;
+	// the underlying list is being reordered by sort, which fires the permutation itself
+	private boolean sorting;
+	// kept once a snapshot has been taken, so the next ones share its chunks
+	private ListSnapshot.Chunks<B> snapshotChunks;
+	// while a change is open: how deep, the contents when it began and the beans updated since
+	private int changeDepth;
+	private Object[] beforeChange;
+	private Set<B> updatedInChange;
+	private final Runnable scheduledFlush = new Runnable() {
+		@Override
+		public void run() {
+			flushScheduled = false;
+			flushUpdates();
+		}
+	};
 	
 	@SafeVarargs
 	public static <B> BeanObservableList<B> create(Getter<? extends Property<?>, B>... getters) {
@@ -68,12 +124,820 @@ public class BeanObservableList<B> implements ObservableList<B> {
 	
 	public BeanObservableList(Collection<B> beans, Collection<Getter<? extends Property<?>, B>> propertyGetters) {
 		this.underlyingList = FXCollections.<B> observableArrayList();
-		this.propertyGetters.addAll(propertyGetters);
+		this.propertyGetters.addAll(new LinkedHashSet<Getter<? extends Property<?>, B>>(propertyGetters));
 		this.underlyingList.addListener(new UnderlyingListSynchronizer());
 		this.underlyingList.addAll(beans);
 	}
 	
-	private class BeanPropertyListener implements ChangeListener<Object>, Releasable {
+	/**
+	 * By default an update is fired every time a property of a bean changes.
+	 * Once coalescing is turned on the updated beans are collected instead and
+	 * fired together, as one change with a sub change per contiguous range of
+	 * updated beans, when the executor runs the flush. This keeps the cost of a
+	 * burst of property changes proportional to the number of beans that changed.
+	 * 
+	 * @param executor runs the flushes (see {@link FXExecutors}), or null to go back to firing updates immediately
+	 */
+	public void coalesceUpdates(Executor executor) {
+		this.updateExecutor = executor;
+		this.flushScheduled = false;
+		flushUpdates();
+	}
+	
+	/**
+	 * Fires any bean updates collected since the last flush, see {@link #coalesceUpdates(Executor)}.
+	 */
+	public void flushUpdates() {
+		if (updatedBeanListeners.isEmpty()) {
+			return;
+		}
+		if (isChanging()) {
+			// fired with the rest of the change
+			for (BeanPropertyListener beanListener : updatedBeanListeners) {
+				updatedInChange.add(beanListener.bean);
+			}
+			updatedBeanListeners.clear();
+			return;
+		}
+		int[] indices = new int[updatedBeanListeners.size()];
+		int i = 0;
+		for (BeanPropertyListener beanListener : updatedBeanListeners) {
+			indices[i++] = indexOf(beanListener);
+		}
+		updatedBeanListeners.clear();
+		if (!listeners.isEmpty()) {
+			Arrays.sort(indices);
+			listeners.fire(RecordedChange.updated(this, indices));
+		}
+		validateInvalidatedProperties();
+	}
+	
+	private void updated(BeanPropertyListener beanListener, Observable property) {
+		if (listeners.isEmpty()) {
+			return;
+		}
+		if (dirtyProperties != null) {
+			markDirty(beanListener, property);
+		}
+		invalidatedProperties.add(property);
+		if (isChanging()) {
+			updatedInChange.add(beanListener.bean);
+			return;
+		}
+		if (updateExecutor == null) {
+			int index = indexOf(beanListener);
+			listeners.fire(RecordedChange.updated(this, index, index + 1));
+			validateInvalidatedProperties();
+			return;
+		}
+		updatedBeanListeners.add(beanListener);
+		if (!flushScheduled) {
+			flushScheduled = true;
+			updateExecutor.execute(scheduledFlush);
+		}
+	}
+	
+	/**
+	 * Starts collecting the changes to this list and its beans instead of
+	 * firing them. When the matching {@link #endChange()} is called they are
+	 * fired as one change, so listeners only do their work once. Changes can
+	 * be nested, only the outermost one fires.
+	 */
+	public void beginChange() {
+		if (changeDepth++ == 0) {
+			beforeChange = underlyingList.toArray();
+			updatedInChange = Collections.newSetFromMap(new IdentityHashMap<B, Boolean>());
+		}
+	}
+	
+	/**
+	 * Fires the changes made since the matching {@link #beginChange()}, as one
+	 * change with a sub change per range of added, removed and updated beans.
+	 * Beans that moved are removed and added again.
+	 * 
+	 * @throws IllegalStateException if no change has begun
+	 */
+	public void endChange() {
+		if (changeDepth == 0) {
+			throw new IllegalStateException("endChange() called without beginChange()");
+		}
+		if (--changeDepth > 0) {
+			return;
+		}
+		Object[] before = beforeChange;
+		Set<B> updated = updatedInChange;
+		beforeChange = null;
+		updatedInChange = null;
+		if (isObserved()) {
+			RecordedChange<B> change = RecordedChange.diff(this, before, updated);
+			if (change.next()) {
+				change.reset();
+				listeners.fire(change);
+			}
+		}
+		validateInvalidatedProperties();
+	}
+	
+	/**
+	 * Runs the batch between {@link #beginChange()} and {@link #endChange()}, so its changes are fired as one.
+	 */
+	public void runBatch(Runnable batch) {
+		beginChange();
+		try {
+			batch.run();
+		} finally {
+			endChange();
+		}
+	}
+	
+	public boolean isChanging() {
+		return changeDepth > 0;
+	}
+	
+	/**
+	 * Sets the property of every bean the filter accepts, as one change (see
+	 * {@link #beginChange()}) with an update per range of changed beans,
+	 * whether or not the getter is watched by this list. The beans are tested in
+	 * parallel on a fork join pool, so the filter must only read the beans.
+	 * 
+	 * @return how many beans were accepted
+	 */
+	public <T> int updateWhere(final BeanFilter<? super B> filter, PropertyGetter<? extends Property<T>, T, B> getter, T value) {
+		final Object[] beans = underlyingList.toArray();
+		final boolean[] accepted = new boolean[beans.length];
+		RecursiveAction test = new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected void compute() {
+				test(0, beans.length);
+			}
+			
+			@SuppressWarnings("unchecked")
+			private void test(final int from, final int to) {
+				if (to - from <= BULK_CHUNK) {
+					for (int i = from; i < to; i++) {
+						accepted[i] = beans[i] != null && filter.accept((B) beans[i]);
+					}
+					return;
+				}
+				final int middle = (from + to) >>> 1;
+				invokeAll(new RecursiveAction() {
+					private static final long serialVersionUID = 1L;
+					
+					@Override
+					protected void compute() {
+						test(from, middle);
+					}
+				}, new RecursiveAction() {
+					private static final long serialVersionUID = 1L;
+					
+					@Override
+					protected void compute() {
+						test(middle, to);
+					}
+				});
+			}
+		};
+		if (beans.length <= BULK_CHUNK) {
+			test.invoke();
+		} else {
+			bulkPool().invoke(test);
+		}
+		
+		int count = 0;
+		beginChange();
+		try {
+			for (int i = 0; i < beans.length; i++) {
+				if (accepted[i]) {
+					@SuppressWarnings("unchecked")
+					B bean = (B) beans[i];
+					Property<T> property = getter.get(bean);
+					if (!Objects.equals(property.getValue(), value)) {
+						property.setValue(value);
+						// fired as updated even if the getter isn't watched
+						updatedInChange.add(bean);
+					}
+					count++;
+				}
+			}
+		} finally {
+			endChange();
+		}
+		return count;
+	}
+	
+	/**
+	 * Sorts the beans, firing one permutation. The compared values are read
+	 * once per bean and the beans are sorted on a fork join pool. The sort is
+	 * stable.
+	 */
+	public void sort(BeanComparator<? super B> comparator) {
+		Object[] beans = underlyingList.toArray();
+		int[] order = new int[beans.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		IndexSort sort = new IndexSort(comparator, comparator.keysOf(beans), order, 0, order.length);
+		if (order.length <= BULK_CHUNK) {
+			sort.invoke();
+		} else {
+			bulkPool().invoke(sort);
+		}
+		
+		int[] permutation = new int[order.length];
+		List<Object> sorted = new ArrayList<Object>(order.length);
+		boolean moved = false;
+		for (int i = 0; i < order.length; i++) {
+			permutation[order[i]] = i;
+			sorted.add(beans[order[i]]);
+			moved |= order[i] != i;
+		}
+		if (!moved) {
+			return;
+		}
+		sorting = true;
+		try {
+			@SuppressWarnings("unchecked")
+			List<B> sortedBeans = (List<B>) sorted;
+			underlyingList.setAll(sortedBeans);
+		} finally {
+			sorting = false;
+		}
+		if (isTracking()) {
+			beanListeners.permute(0, permutation.length, permutation);
+		}
+		if (isObserved()) {
+			if (hasViewport()) {
+				syncViewport();
+			}
+			if (!isChanging()) {
+				listeners.fire(new RecordedChange.Builder<B>().permutated(0, permutation.length, permutation).build(this));
+			}
+		}
+	}
+	
+	/**
+	 * Takes an immutable copy of the list that can be read from other threads
+	 * (e.g. by exports) while this list keeps changing. From the first
+	 * snapshot on, the list is also kept in chunks that are replaced rather
+	 * than modified, so a snapshot only copies the chunk references and
+	 * snapshots taken without a change in between are the same object.
+	 * <p>
+	 * The chunks are brought up to date before listeners are told about a
+	 * change, so a listener's snapshot has the change in it. This costs every
+	 * later change a walk over the chunks (size / 1024 of them) to find the
+	 * ones it touches, and every snapshot after a change a copy of the chunk
+	 * references.
+	 */
+	public ListSnapshot<B> snapshot() {
+		if (snapshotChunks == null) {
+			snapshotChunks = new ListSnapshot.Chunks<B>(underlyingList);
+		}
+		return snapshotChunks.snapshot();
+	}
+	
+	private static synchronized ForkJoinPool bulkPool() {
+		if (bulkPool == null) {
+			bulkPool = new ForkJoinPool();
+		}
+		return bulkPool;
+	}
+	
+	/**
+	 * Properties only fire one invalidation until they are valid again. Once
+	 * the listeners of this list have been told (and had the chance to read the
+	 * new values) the properties are validated here, without boxing primitives.
+	 */
+	private void validateInvalidatedProperties() {
+		for (int i = 0; i < invalidatedProperties.size(); i++) {
+			validate(invalidatedProperties.get(i));
+		}
+		invalidatedProperties.clear();
+	}
+	
+	private static void validate(Observable property) {
+		if (property instanceof ObservableIntegerValue) {
+			((ObservableIntegerValue) property).get();
+		} else if (property instanceof ObservableDoubleValue) {
+			((ObservableDoubleValue) property).get();
+		} else if (property instanceof ObservableLongValue) {
+			((ObservableLongValue) property).get();
+		} else if (property instanceof ObservableFloatValue) {
+			((ObservableFloatValue) property).get();
+		} else if (property instanceof ObservableBooleanValue) {
+			((ObservableBooleanValue) property).get();
+		} else if (property instanceof ObservableValue) {
+			((ObservableValue<?>) property).getValue();
+		}
+	}
+	
+	private int indexOf(BeanPropertyListener beanListener) {
+		return beanListeners.indexOf(beanListener);
+	}
+	
+	/**
+	 * When turned on the list keeps an identity hash index from each bean to
+	 * its position, so {@link #indexOf(Object)}, {@link #lastIndexOf(Object)},
+	 * {@link #contains(Object)} and {@link #remove(Object)} no longer scan the
+	 * list. Note that these methods then compare beans by identity rather than
+	 * by equals.
+	 * 
+	 * @param indexed true to keep the index up to date, false to drop it
+	 */
+	public void setIdentityIndexed(boolean indexed) {
+		if (indexed == isIdentityIndexed()) {
+			return;
+		}
+		if (indexed) {
+			identityIndex = new IdentityHashMap<B, Object>();
+			if (isObserved()) {
+				for (BeanPropertyListener beanListener : beanListeners) {
+					if (beanListener != null) {
+						index(beanListener);
+					}
+				}
+			} else {
+				startTrackingBeans();
+			}
+		} else {
+			identityIndex = null;
+			if (!isObserved()) {
+				stopTrackingBeans();
+			}
+		}
+	}
+	
+	public boolean isIdentityIndexed() {
+		return identityIndex != null;
+	}
+	
+	/**
+	 * Starts watching the property this getter returns on every bean, so
+	 * changes to it fire updates. This can be used to only pay for the
+	 * properties that are currently shown (or sorted or filtered on).
+	 * 
+	 * @return false if the getter was already watched
+	 */
+	public boolean addWatchedGetter(Getter<? extends Property<?>, B> getter) {
+		if (getter == null) {
+			throw new NullPointerException("getter can not be null");
+		}
+		if (viewGetters.containsKey(getter)) {
+			// already watched for a view, it now stays watched once the views are done with it
+			return viewOnlyGetters.remove(getter);
+		}
+		if (propertyGetters.contains(getter)) {
+			return false;
+		}
+		propertyGetters.add(getter);
+		if (isObserved()) {
+			for (BeanPropertyListener beanListener : attachedBeanListeners()) {
+				if (beanListener != null) {
+					beanListener.attach(getter);
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Stops watching the property this getter returns on every bean. Getters
+	 * that derived views (e.g. {@link FilteredBeanList}) depend on stay
+	 * watched until the views are released.
+	 * 
+	 * @return false if the getter was not watched
+	 */
+	public boolean removeWatchedGetter(Getter<? extends Property<?>, B> getter) {
+		if (viewGetters.containsKey(getter)) {
+			return viewOnlyGetters.add(getter);
+		}
+		return unwatch(getter);
+	}
+	
+	/**
+	 * Watches a getter for a view built on this list. Unlike the other
+	 * watched getters it is watched on every bean, even outside the viewport,
+	 * since the view needs to know about every change. Views must call
+	 * {@link #removeViewGetter(Getter)} when they are released.
+	 */
+	void addViewGetter(Getter<? extends Property<?>, B> getter) {
+		Integer views = viewGetters.get(getter);
+		if (views != null) {
+			viewGetters.put(getter, views + 1);
+			return;
+		}
+		if (addWatchedGetter(getter)) {
+			viewOnlyGetters.add(getter);
+		}
+		viewGetters.put(getter, 1);
+		for (BeanPropertyListener beanListener : outsideViewport()) {
+			beanListener.attach(getter);
+		}
+	}
+	
+	void removeViewGetter(Getter<? extends Property<?>, B> getter) {
+		Integer views = viewGetters.get(getter);
+		if (views == null) {
+			return;
+		}
+		if (views > 1) {
+			viewGetters.put(getter, views - 1);
+			return;
+		}
+		for (BeanPropertyListener beanListener : outsideViewport()) {
+			beanListener.release(getter);
+		}
+		viewGetters.remove(getter);
+		if (viewOnlyGetters.remove(getter)) {
+			unwatch(getter);
+		}
+	}
+	
+	// the observed bean listeners that only listen to the view getters
+	private List<BeanPropertyListener> outsideViewport() {
+		List<BeanPropertyListener> outside = new ArrayList<BeanPropertyListener>();
+		if (isObserved() && hasViewport()) {
+			for (BeanPropertyListener beanListener : beanListeners) {
+				if (beanListener != null && !viewportBeanListeners.contains(beanListener)) {
+					outside.add(beanListener);
+				}
+			}
+		}
+		return outside;
+	}
+	
+	private boolean unwatch(Getter<? extends Property<?>, B> getter) {
+		int bit = propertyGetters.indexOf(getter);
+		if (bit < 0) {
+			return false;
+		}
+		if (isObserved()) {
+			for (BeanPropertyListener beanListener : attachedBeanListeners()) {
+				if (beanListener != null) {
+					beanListener.release(getter);
+				}
+			}
+		}
+		propertyGetters.remove(bit);
+		if (dirtyProperties != null) {
+			for (Iterator<BitSet> iterator = dirtyProperties.values().iterator(); iterator.hasNext();) {
+				BitSet bits = iterator.next();
+				// the getters after the removed one move down a bit
+				BitSet moved = bits.get(bit + 1, Math.max(bit + 1, bits.length()));
+				bits.clear(bit, Math.max(bit, bits.length()));
+				for (int i = moved.nextSetBit(0); i >= 0; i = moved.nextSetBit(i + 1)) {
+					bits.set(bit + i);
+				}
+				if (bits.isEmpty()) {
+					iterator.remove();
+				}
+			}
+		}
+		return true;
+	}
+	
+	public List<Getter<? extends Property<?>, B>> getWatchedGetters() {
+		return Collections.unmodifiableList(propertyGetters);
+	}
+	
+	/**
+	 * Limits the beans whose properties are listened to to the ones a
+	 * virtualized control (ListView, TableView) is showing, plus a margin on
+	 * each side for smooth scrolling. Moving the viewport only attaches and
+	 * releases the beans that enter and leave it, so the cost of observing the
+	 * list is proportional to the height of the screen rather than its size.
+	 * <p>
+	 * Changes to beans outside the viewport are not fired (or marked dirty),
+	 * the control reads their current values when their cells come into view.
+	 * The exception are the properties views built on this list depend on
+	 * (filters, sorts, indexes, aggregates...), those are followed on every
+	 * bean so the views stay up to date.
+	 * 
+	 * @param firstVisible index of the first visible row
+	 * @param lastVisible index of the last visible row (inclusive)
+	 * @param margin number of rows before and after the visible ones to observe as well
+	 */
+	public void setViewport(int firstVisible, int lastVisible, int margin) {
+		if (firstVisible < 0 || lastVisible < firstVisible - 1 || margin < 0) {
+			throw new IllegalArgumentException("Invalid viewport: [" + firstVisible + ", " + lastVisible + "] with margin " + margin);
+		}
+		this.viewportFirst = firstVisible;
+		this.viewportLast = lastVisible;
+		this.viewportMargin = margin;
+		if (!hasViewport()) {
+			viewportBeanListeners = newBeanListenerSet();
+			if (isObserved()) {
+				// all of them are attached at the moment
+				for (BeanPropertyListener beanListener : beanListeners) {
+					if (beanListener != null) {
+						viewportBeanListeners.add(beanListener);
+					}
+				}
+			}
+		}
+		if (isObserved()) {
+			syncViewport();
+		}
+	}
+	
+	/**
+	 * Goes back to listening to the properties of every bean, see {@link #setViewport(int, int, int)}.
+	 */
+	public void clearViewport() {
+		if (!hasViewport()) {
+			return;
+		}
+		Set<BeanPropertyListener> attached = viewportBeanListeners;
+		viewportBeanListeners = null;
+		if (isObserved()) {
+			for (BeanPropertyListener beanListener : beanListeners) {
+				if (beanListener != null && !attached.contains(beanListener)) {
+					beanListener.attach(false);
+				}
+			}
+		}
+	}
+	
+	public boolean hasViewport() {
+		return viewportBeanListeners != null;
+	}
+	
+	private void syncViewport() {
+		Set<BeanPropertyListener> visible = newBeanListenerSet();
+		int from = Math.min(size(), Math.max(0, viewportFirst - viewportMargin));
+		int to = (int) Math.min(size(), (long) viewportLast + 1 + viewportMargin);
+		if (from < to) {
+			Iterator<BeanPropertyListener> iterator = beanListeners.iterator(from);
+			for (int index = from; index < to; index++) {
+				BeanPropertyListener beanListener = iterator.next();
+				if (beanListener != null) {
+					visible.add(beanListener);
+				}
+			}
+		}
+		for (BeanPropertyListener beanListener : viewportBeanListeners) {
+			if (!visible.contains(beanListener)) {
+				beanListener.release(false);
+			}
+		}
+		for (BeanPropertyListener beanListener : visible) {
+			if (!viewportBeanListeners.contains(beanListener)) {
+				beanListener.attach(false);
+			}
+		}
+		viewportBeanListeners = visible;
+	}
+	
+	private Set<BeanPropertyListener> newBeanListenerSet() {
+		return Collections.newSetFromMap(new IdentityHashMap<BeanPropertyListener, Boolean>());
+	}
+	
+	// the bean listeners that are listening to their properties (while the list is observed)
+	private Iterable<BeanPropertyListener> attachedBeanListeners() {
+		return hasViewport() ? viewportBeanListeners : beanListeners;
+	}
+	
+	/**
+	 * When turned on the list remembers, for every bean, which of its watched
+	 * properties have changed (while the list is observed) until they are
+	 * cleared. This lets listeners refresh only the properties that changed.
+	 * 
+	 * @param tracked true to start remembering changed properties, false to stop and forget them
+	 */
+	public void setDirtyPropertiesTracked(boolean tracked) {
+		if (tracked == isDirtyPropertiesTracked()) {
+			return;
+		}
+		dirtyProperties = tracked ? new IdentityHashMap<BeanPropertyListener, BitSet>() : null;
+	}
+	
+	public boolean isDirtyPropertiesTracked() {
+		return dirtyProperties != null;
+	}
+	
+	/**
+	 * @return the getters of the properties that changed, for the bean at this index, since they were last cleared
+	 */
+	public Set<Getter<? extends Property<?>, B>> getDirtyProperties(int index) {
+		Set<Getter<? extends Property<?>, B>> dirty = new LinkedHashSet<Getter<? extends Property<?>, B>>();
+		BitSet bits = dirtyBits(index);
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+			dirty.add(propertyGetters.get(i));
+		}
+		return dirty;
+	}
+	
+	public boolean isDirty(int index, Getter<? extends Property<?>, B> getter) {
+		int bit = propertyGetters.indexOf(getter);
+		return bit >= 0 && dirtyBits(index).get(bit);
+	}
+	
+	/**
+	 * @return the indexes in [from, to), in order, of the beans with changed properties
+	 */
+	public int[] getDirtyRows(int from, int to) {
+		checkRange(from, to);
+		if (dirtyProperties == null || dirtyProperties.isEmpty() || !isTracking()) {
+			return new int[0];
+		}
+		int[] rows = new int[Math.min(to - from, dirtyProperties.size())];
+		int count = 0;
+		if (dirtyProperties.size() < to - from) {
+			for (BeanPropertyListener beanListener : dirtyProperties.keySet()) {
+				int index = indexOf(beanListener);
+				if (index >= from && index < to) {
+					rows[count++] = index;
+				}
+			}
+			Arrays.sort(rows, 0, count);
+		} else {
+			Iterator<BeanPropertyListener> iterator = beanListeners.iterator(from);
+			for (int index = from; index < to; index++) {
+				BeanPropertyListener beanListener = iterator.next();
+				if (beanListener != null && dirtyProperties.containsKey(beanListener)) {
+					rows[count++] = index;
+				}
+			}
+		}
+		return Arrays.copyOf(rows, count);
+	}
+	
+	public void clearDirtyProperties(int index) {
+		clearDirtyProperties(index, index + 1);
+	}
+	
+	public void clearDirtyProperties(int from, int to) {
+		checkRange(from, to);
+		if (dirtyProperties == null || dirtyProperties.isEmpty() || !isTracking()) {
+			return;
+		}
+		Iterator<BeanPropertyListener> iterator = beanListeners.iterator(from);
+		for (int index = from; index < to; index++) {
+			dirtyProperties.remove(iterator.next());
+		}
+	}
+	
+	private BitSet dirtyBits(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+		BitSet bits = null;
+		if (dirtyProperties != null && isTracking()) {
+			bits = dirtyProperties.get(beanListeners.get(index));
+		}
+		return bits == null ? new BitSet() : bits;
+	}
+	
+	private void markDirty(BeanPropertyListener beanListener, Observable property) {
+		for (int i = 0; i < propertyGetters.size(); i++) {
+			if (propertyGetters.get(i).get(beanListener.bean) == property) {
+				BitSet bits = dirtyProperties.get(beanListener);
+				if (bits == null) {
+					bits = new BitSet(propertyGetters.size());
+					dirtyProperties.put(beanListener, bits);
+				}
+				bits.set(i);
+			}
+		}
+	}
+	
+	private void checkRange(int from, int to) {
+		if (from < 0 || to > size() || from > to) {
+			throw new IndexOutOfBoundsException("Range: [" + from + ", " + to + "), Size: " + size());
+		}
+	}
+	
+	private boolean isObserved() {
+		return !listeners.isEmpty();
+	}
+	
+	// bean listeners are kept for each bean while the list is observed or indexed
+	private boolean isTracking() {
+		return isObserved() || isIdentityIndexed();
+	}
+	
+	private void startTrackingBeans() {
+		beanListeners.addAll(0, track(underlyingList));
+	}
+	
+	private void stopTrackingBeans() {
+		beanListeners.clear();
+	}
+	
+	private List<BeanPropertyListener> track(List<? extends B> beans) {
+		List<BeanPropertyListener> tracked = new ArrayList<BeanPropertyListener>(beans.size());
+		for (B bean : beans) {
+			tracked.add(track(bean));
+		}
+		return tracked;
+	}
+	
+	private BeanPropertyListener track(B bean) {
+		if (bean == null) {
+			return null;
+		}
+		BeanPropertyListener beanListener = new BeanPropertyListener(bean);
+		// with a viewport the beans are fully attached once they are in place, see syncViewport
+		if (isObserved() && !hasViewport()) {
+			beanListener.attach();
+		} else if (isObserved()) {
+			beanListener.attach(true);
+		}
+		if (isIdentityIndexed()) {
+			index(beanListener);
+		}
+		return beanListener;
+	}
+	
+	private void untrack(BeanPropertyListener beanListener) {
+		updatedBeanListeners.remove(beanListener);
+		if (dirtyProperties != null) {
+			dirtyProperties.remove(beanListener);
+		}
+		if (isObserved() && (!hasViewport() || viewportBeanListeners.remove(beanListener))) {
+			beanListener.release();
+		} else if (isObserved()) {
+			beanListener.release(true);
+		}
+		if (isIdentityIndexed()) {
+			unindex(beanListener);
+		}
+	}
+	
+	private void startObservingBeans() {
+		if (!isIdentityIndexed()) {
+			startTrackingBeans();
+		} else {
+			for (BeanPropertyListener beanListener : beanListeners) {
+				if (beanListener != null && !hasViewport()) {
+					beanListener.attach();
+				} else if (beanListener != null) {
+					beanListener.attach(true);
+				}
+			}
+		}
+		if (hasViewport()) {
+			syncViewport();
+		}
+	}
+	
+	private void stopObservingBeans() {
+		updatedBeanListeners.clear();
+		if (dirtyProperties != null) {
+			dirtyProperties.clear();
+		}
+		invalidatedProperties.clear();
+		for (BeanPropertyListener beanListener : beanListeners) {
+			if (beanListener != null && (!hasViewport() || viewportBeanListeners.contains(beanListener))) {
+				beanListener.release();
+			} else if (beanListener != null) {
+				beanListener.release(true);
+			}
+		}
+		if (hasViewport()) {
+			viewportBeanListeners.clear();
+		}
+		if (!isIdentityIndexed()) {
+			stopTrackingBeans();
+		}
+	}
+	
+	private void index(BeanPropertyListener beanListener) {
+		Object indexed = identityIndex.get(beanListener.bean);
+		if (indexed == null) {
+			identityIndex.put(beanListener.bean, beanListener);
+		} else {
+			List<BeanPropertyListener> duplicates = new ArrayList<BeanPropertyListener>(indexed(beanListener.bean));
+			duplicates.add(beanListener);
+			identityIndex.put(beanListener.bean, duplicates);
+		}
+	}
+	
+	private void unindex(BeanPropertyListener beanListener) {
+		List<BeanPropertyListener> indexed = indexed(beanListener.bean);
+		if (indexed.size() == 1) {
+			identityIndex.remove(beanListener.bean);
+		} else {
+			List<BeanPropertyListener> duplicates = new ArrayList<BeanPropertyListener>(indexed);
+			duplicates.remove(beanListener);
+			identityIndex.put(beanListener.bean, duplicates.size() == 1 ? duplicates.get(0) : duplicates);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<BeanPropertyListener> indexed(Object bean) {
+		Object indexed = identityIndex.get(bean);
+		if (indexed == null) {
+			return Collections.emptyList();
+		} else if (indexed instanceof List) {
+			return (List<BeanPropertyListener>) indexed;
+		} else {
+			return Collections.singletonList((BeanPropertyListener) indexed);
+		}
+	}
+	
+	private class BeanPropertyListener extends ChunkedList.Element implements InvalidationListener, Releasable {
 		private final B bean;
 		
 		public BeanPropertyListener(B bean) {
@@ -81,83 +945,216 @@ public class BeanObservableList<B> implements ObservableList<B> {
 				throw new NullPointerException("Listener should not be attached to null bean");
 				
 			this.bean = bean;
+		}
+		
+		public void attach() {
 			for (Getter<? extends Property<?>, B> getter : propertyGetters) {
-				getter.get(bean).addListener(this);
+				attach(getter);
 			}
 		}
 		
+		public void attach(Getter<? extends Property<?>, B> getter) {
+			Property<?> property = getter.get(bean);
+			property.addListener(this);
+			// an invalid property would not fire until someone else validates it
+			validate(property);
+		}
+		
 		public void release() {
 			for (Getter<? extends Property<?>, B> getter : propertyGetters) {
-				getter.get(bean).removeListener(this);
+				release(getter);
 			}
 		}
 		
+		public void release(Getter<? extends Property<?>, B> getter) {
+			getter.get(bean).removeListener(this);
+		}
+		
+		/**
+		 * Attaches either only the getters views depend on (for beans outside the viewport), or only the others.
+		 */
+		public void attach(boolean viewGetters) {
+			for (Getter<? extends Property<?>, B> getter : propertyGetters) {
+				if (BeanObservableList.this.viewGetters.containsKey(getter) == viewGetters) {
+					attach(getter);
+				}
+			}
+		}
+		
+		public void release(boolean viewGetters) {
+			for (Getter<? extends Property<?>, B> getter : propertyGetters) {
+				if (BeanObservableList.this.viewGetters.containsKey(getter) == viewGetters) {
+					release(getter);
+				}
+			}
+		}
+		
+		@Override
+		public void invalidated(Observable property) {
+			// An update (rather than a set or a remove/add) keeps SelectionModel(s)
+			// from believing the item has been dropped and deselecting it.
+			updated(this, property);
+		}
+	}
+	
+	/**
+	 * Stable merge sort of bean indexes by their keys, the halves of large ranges are sorted in parallel.
+	 */
+	private static class IndexSort extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final int INSERTION_SORT = 32;
+		
+		private final BeanComparator<?> comparator;
+		private final Object[][] keys;
+		private final int[] indexes;
+		private final int[] buffer;
+		private final int from;
+		private final int to;
+		
+		private IndexSort(BeanComparator<?> comparator, Object[][] keys, int[] indexes, int from, int to) {
+			this(comparator, keys, indexes, new int[indexes.length], from, to);
+		}
+		
+		private IndexSort(BeanComparator<?> comparator, Object[][] keys, int[] indexes, int[] buffer, int from, int to) {
+			this.comparator = comparator;
+			this.keys = keys;
+			this.indexes = indexes;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+		}
+		
 		@Override
-		public void changed(ObservableValue<?> arg0, Object arg1, Object arg2) {
-			// LATER ideally we'd add an index to the bean listeners keep it up
-			// date and then do something like:
-			//
-			// underlyingList.set(index, bean);
-			//
-			// but this interacts badly with SelectionModel(s) who believe that 
-			// the item has been dropped and deselect it, which is not the desired behavior.
-			// 
-			// This is a hack which, while inefficient, retains all the items so
-			// SelectionModel(s) work and forces an update on the desired item (plus all the others for that matter).
-			underlyingList.add(0, null);
-			underlyingList.remove(0);
-		}
-	}
-	
-	private class UnderlyingListSynchronizer extends ListChangeListenerAdapter<B> {
-		public void addedChange(int index, B item) {
-			if (item == null) {
+		protected void compute() {
+			if (to - from <= BULK_CHUNK) {
+				sort(from, to);
 				return;
 			}
-			beanListeners.add(index, new BeanPropertyListener(item));
+			int middle = (from + to) >>> 1;
+			invokeAll(new IndexSort(comparator, keys, indexes, buffer, from, middle), new IndexSort(comparator, keys, indexes, buffer, middle, to));
+			merge(from, middle, to);
 		}
 		
-		public void removedChange(int index, B item) {
-			if (item == null) {
+		private void sort(int from, int to) {
+			if (to - from <= INSERTION_SORT) {
+				for (int i = from + 1; i < to; i++) {
+					int index = indexes[i];
+					int j = i;
+					for (; j > from && compare(indexes[j - 1], index) > 0; j--) {
+						indexes[j] = indexes[j - 1];
+					}
+					indexes[j] = index;
+				}
 				return;
 			}
-			beanListeners.remove(index).release();
-		};
+			int middle = (from + to) >>> 1;
+			sort(from, middle);
+			sort(middle, to);
+			merge(from, middle, to);
+		}
 		
-		@Override
-		public void permutedChange(List<Permuation> permuations) {
-			List<BeanPropertyListener> toMove = new ArrayList<>();
-			for(Permuation permuation : permuations){
-				toMove.add(beanListeners.get(permuation.oldIndex));
+		private void merge(int from, int middle, int to) {
+			if (compare(indexes[middle - 1], indexes[middle]) <= 0) {
+				return;
 			}
-			for(int i = 0; i < toMove.size(); i++){
-				beanListeners.set(permuations.get(i).newIndex, toMove.get(i));
+			System.arraycopy(indexes, from, buffer, from, to - from);
+			int left = from;
+			int right = middle;
+			for (int i = from; i < to; i++) {
+				if (right == to || (left < middle && compare(buffer[left], buffer[right]) <= 0)) {
+					indexes[i] = buffer[left++];
+				} else {
+					indexes[i] = buffer[right++];
+				}
 			}
 		}
 		
-		public void updatedChange(int index, B element) {
-			throw new UnsupportedOperationException("Observable Array List doesn't fire these events");
-		};
+		private int compare(int index1, int index2) {
+			return comparator.compareKeys(keys, index1, index2);
+		}
+	}
+	
+	private class UnderlyingListSynchronizer implements ListChangeListener<B> {
+		@Override
+		public void onChanged(Change<? extends B> c) {
+			if (snapshotChunks != null) {
+				// before the listeners, who may take a snapshot
+				snapshotChunks.onChanged(c);
+				c.reset();
+			}
+			// beans are only observed while someone is observing (or indexing) this list
+			if (!isTracking() || sorting) {
+				return;
+			}
+			while (c.next()) {
+				if (c.wasPermutated()) {
+					int[] permutation = new int[c.getTo() - c.getFrom()];
+					for (int i = c.getFrom(); i < c.getTo(); i++) {
+						permutation[i - c.getFrom()] = c.getPermutation(i);
+					}
+					beanListeners.permute(c.getFrom(), c.getTo(), permutation);
+				} else if (c.wasUpdated()) {
+					throw new UnsupportedOperationException("Observable Array List doesn't fire these events");
+				} else {
+					for (BeanPropertyListener removed : beanListeners.remove(c.getFrom(), c.getFrom() + c.getRemovedSize())) {
+						if (removed != null) {
+							untrack(removed);
+						}
+					}
+					beanListeners.addAll(c.getFrom(), track(c.getAddedSubList()));
+				}
+			}
+			if (isObserved()) {
+				if (hasViewport()) {
+					// beans have moved in and out of the viewport
+					syncViewport();
+				}
+				if (!isChanging()) {
+					listeners.fire(RecordedChange.copyOf(BeanObservableList.this, c));
+				}
+			}
+		}
 	}
 
-	// ============= Methods below here just delegate =============	
+	// ============= Listeners are managed here so updates can be fired =============
+	// Bean properties are only listened to while this list has listeners.
 	public void addListener(InvalidationListener listener) {
-		underlyingList.addListener(listener);
+		boolean observed = !listeners.isEmpty();
+		listeners.addInvalidationListener(listener);
+		if (!observed) {
+			startObservingBeans();
+		}
 	}
 	
 	public void addListener(ListChangeListener<? super B> listener) {
-		underlyingList.addListener(listener);
+		boolean observed = !listeners.isEmpty();
+		listeners.addChangeListener(listener);
+		if (!observed) {
+			startObservingBeans();
+		}
 	}
 	
 	public void removeListener(InvalidationListener listener) {
-		underlyingList.removeListener(listener);
+		boolean observed = !listeners.isEmpty();
+		listeners.removeInvalidationListener(listener);
+		if (observed && listeners.isEmpty()) {
+			stopObservingBeans();
+		}
 	}
 	
 	public void removeListener(ListChangeListener<? super B> listener) {
-		underlyingList.removeListener(listener);
+		boolean observed = !listeners.isEmpty();
+		listeners.removeChangeListener(listener);
+		if (observed && listeners.isEmpty()) {
+			stopObservingBeans();
+		}
 	}
-	
+
+	// ============= Methods below here just delegate =============	
 	public boolean contains(Object o) {
+		if (isIdentityIndexed() && o != null) {
+			return identityIndex.containsKey(o);
+		}
 		return underlyingList.contains(o);
 	}
 	
@@ -242,6 +1239,14 @@ public class BeanObservableList<B> implements ObservableList<B> {
 	}
 	
 	public boolean remove(Object o) {
+		if (isIdentityIndexed()) {
+			int index = indexOf(o);
+			if (index < 0) {
+				return false;
+			}
+			underlyingList.remove(index);
+			return true;
+		}
 		return underlyingList.remove(o);
 	}
 	
@@ -266,10 +1271,25 @@ public class BeanObservableList<B> implements ObservableList<B> {
 	}
 	
 	public int indexOf(Object o) {
+		if (isIdentityIndexed() && o != null) {
+			int index = -1;
+			for (BeanPropertyListener beanListener : indexed(o)) {
+				int beanIndex = indexOf(beanListener);
+				index = (index < 0) ? beanIndex : Math.min(index, beanIndex);
+			}
+			return index;
+		}
 		return underlyingList.indexOf(o);
 	}
 	
 	public int lastIndexOf(Object o) {
+		if (isIdentityIndexed() && o != null) {
+			int index = -1;
+			for (BeanPropertyListener beanListener : indexed(o)) {
+				index = Math.max(index, indexOf(beanListener));
+			}
+			return index;
+		}
 		return underlyingList.lastIndexOf(o);
 	}
 	
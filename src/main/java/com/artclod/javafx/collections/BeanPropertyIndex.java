@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.artclod.javafx.Releasable;
+import com.artclod.javafx.swap.beans.getter.PropertyGetter;
+
+/**
+ * Maps the values of a property to the beans of a {@link BeanObservableList}
+ * that have them, so beans can be looked up without scanning the list. The
+ * index follows beans being added and removed and the property changing
+ * (the getter is watched by the list until the index is released).
+ * <p>
+ * Beans are compared by identity. The index catches up with property changes
+ * when the list fires them, so with coalesced updates it lags until the flush.
+ * The getter is followed on every bean, even outside the list's viewport.
+ * 
+ * @param <K> The property value type
+ * @param <B> The bean type
+ */
+public class BeanPropertyIndex<K, B> implements Releasable {
+	private final Map<K, Set<B>> buckets;
+	private final BeanValueTracker<K, B> tracker;
+	
+	public BeanPropertyIndex(BeanObservableList<B> list, PropertyGetter<?, K, B> getter) {
+		this(list, getter, new HashMap<K, Set<B>>());
+	}
+	
+	protected BeanPropertyIndex(BeanObservableList<B> list, PropertyGetter<?, K, B> getter, Map<K, Set<B>> buckets) {
+		this.buckets = buckets;
+		this.tracker = new BeanValueTracker<K, B>(list, getter, new Callback());
+	}
+	
+	/**
+	 * @return the beans whose property currently has this value
+	 */
+	public Set<B> get(K key) {
+		Set<B> beans = buckets.get(key);
+		return beans == null ? Collections.<B> emptySet() : Collections.unmodifiableSet(beans);
+	}
+	
+	public boolean containsKey(K key) {
+		return buckets.containsKey(key);
+	}
+	
+	/**
+	 * @return the values the property has on at least one bean
+	 */
+	public Set<K> keySet() {
+		return Collections.unmodifiableSet(buckets.keySet());
+	}
+	
+	protected Map<K, Set<B>> getBuckets() {
+		return buckets;
+	}
+	
+	/**
+	 * Stops following the list, the getter is no longer watched unless something else watches it.
+	 */
+	@Override
+	public void release() {
+		tracker.release();
+	}
+	
+	private Set<B> bucket(K key) {
+		Set<B> beans = buckets.get(key);
+		if (beans == null) {
+			beans = Collections.newSetFromMap(new IdentityHashMap<B, Boolean>());
+			buckets.put(key, beans);
+		}
+		return beans;
+	}
+	
+	private void unbucket(K key, B bean) {
+		Set<B> beans = buckets.get(key);
+		beans.remove(bean);
+		if (beans.isEmpty()) {
+			buckets.remove(key);
+		}
+	}
+	
+	private class Callback implements BeanValueTracker.Callback<K, B> {
+		@Override
+		public void added(B bean, K value) {
+			bucket(value).add(bean);
+		}
+		
+		@Override
+		public void removed(B bean, K value) {
+			if (tracker.occurrences(bean) == 0) {
+				unbucket(value, bean);
+			}
+		}
+		
+		@Override
+		public void changed(B bean, K oldValue, K newValue) {
+			unbucket(oldValue, bean);
+			bucket(newValue).add(bean);
+		}
+	}
+}
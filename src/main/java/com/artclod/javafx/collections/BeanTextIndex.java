@@ -0,0 +1,503 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javafx.collections.ListChangeListener;
+
+import com.artclod.javafx.Releasable;
+import com.artclod.javafx.swap.beans.getter.StringPropertyGetter;
+
+/**
+ * A full text index over string properties of the beans of a {@link BeanObservableList},
+ * for search as you type (e.g. over first and last names). Every word of the
+ * properties is broken into trigrams, padded at the start of the word, and
+ * each trigram keeps the (sorted) ids of the beans that have it. A query only
+ * looks at the beans that have all its trigrams, starting with the rarest.
+ * <p>
+ * Searches are case insensitive and a bean matches when it contains every
+ * word of the query. Query words shorter than three characters only match the
+ * start of words. The index follows beans being added and removed and their
+ * properties changing (the getters are watched by the list).
+ * 
+ * @param <B> The bean type
+ */
+public class BeanTextIndex<B> implements Releasable {
+	private static final int GRAM = 3;
+	
+	private final BeanObservableList<B> list;
+	private final List<StringPropertyGetter<B>> getters;
+	private final Listener listener = new Listener();
+	private final IdentityHashMap<B, Entry<B>> entries = new IdentityHashMap<B, Entry<B>>();
+	private final Map<String, Postings> postings = new HashMap<String, Postings>();
+	// beans by id, ids of removed beans are reused
+	private final List<Entry<B>> byId = new ArrayList<Entry<B>>();
+	private final Postings freeIds = new Postings();
+	private int nextId;
+	private final List<SearchResults> searches = new ArrayList<SearchResults>();
+	
+	@SafeVarargs
+	public BeanTextIndex(BeanObservableList<B> list, StringPropertyGetter<B>... getters) {
+		this.list = list;
+		this.getters = new ArrayList<StringPropertyGetter<B>>(getters.length);
+		for (StringPropertyGetter<B> getter : getters) {
+			this.getters.add(getter);
+			list.addViewGetter(getter);
+		}
+		for (B bean : list) {
+			added(bean);
+		}
+		list.addListener(listener);
+	}
+	
+	/**
+	 * @return the beans that match the query right now, not in list order
+	 */
+	public List<B> find(String query) {
+		List<B> found = new ArrayList<B>();
+		Postings matches = matches(words(query));
+		for (int i = 0; i < matches.size; i++) {
+			found.add(byId.get(matches.ids[i]).bean);
+		}
+		return found;
+	}
+	
+	/**
+	 * @return a list of the beans that match the query that stays up to date as beans change and the query is changed
+	 */
+	public SearchResults search(String query) {
+		SearchResults results = new SearchResults(query);
+		searches.add(results);
+		return results;
+	}
+	
+	/**
+	 * Stops following the list, the search results still open are released (and emptied) with it.
+	 */
+	@Override
+	public void release() {
+		list.removeListener(listener);
+		for (StringPropertyGetter<B> getter : getters) {
+			list.removeViewGetter(getter);
+		}
+		// each removes itself
+		for (SearchResults results : new ArrayList<SearchResults>(searches)) {
+			results.release();
+		}
+	}
+	
+	private void added(B bean) {
+		if (bean == null) {
+			return;
+		}
+		Entry<B> entry = entries.get(bean);
+		if (entry == null) {
+			entry = new Entry<B>(bean, newId(), text(bean));
+			entries.put(bean, entry);
+			byId.set(entry.id, entry);
+			for (String gram : grams(entry.text)) {
+				posting(gram).add(entry.id);
+			}
+			for (SearchResults results : searches) {
+				results.check(entry);
+			}
+		}
+		entry.occurrences++;
+	}
+	
+	private void removed(B bean) {
+		Entry<B> entry = entries.get(bean);
+		if (entry == null || --entry.occurrences > 0) {
+			return;
+		}
+		entries.remove(bean);
+		for (String gram : grams(entry.text)) {
+			unpost(gram, entry.id);
+		}
+		for (SearchResults results : searches) {
+			results.remove(entry);
+		}
+		byId.set(entry.id, null);
+		freeIds.add(entry.id);
+	}
+	
+	private void updated(B bean) {
+		Entry<B> entry = entries.get(bean);
+		if (entry == null) {
+			return;
+		}
+		String text = text(bean);
+		if (text.equals(entry.text)) {
+			return;
+		}
+		Set<String> oldGrams = grams(entry.text);
+		Set<String> newGrams = grams(text);
+		for (String gram : oldGrams) {
+			if (!newGrams.contains(gram)) {
+				unpost(gram, entry.id);
+			}
+		}
+		for (String gram : newGrams) {
+			if (!oldGrams.contains(gram)) {
+				posting(gram).add(entry.id);
+			}
+		}
+		entry.text = text;
+		for (SearchResults results : searches) {
+			results.check(entry);
+		}
+	}
+	
+	private int newId() {
+		if (freeIds.size > 0) {
+			return freeIds.ids[--freeIds.size];
+		}
+		byId.add(null);
+		return nextId++;
+	}
+	
+	private Postings posting(String gram) {
+		Postings posting = postings.get(gram);
+		if (posting == null) {
+			posting = new Postings();
+			postings.put(gram, posting);
+		}
+		return posting;
+	}
+	
+	private void unpost(String gram, int id) {
+		Postings posting = postings.get(gram);
+		posting.remove(id);
+		if (posting.size == 0) {
+			postings.remove(gram);
+		}
+	}
+	
+	// the words of the bean's properties, lower case, each after a space
+	private String text(B bean) {
+		StringBuilder text = new StringBuilder();
+		for (StringPropertyGetter<B> getter : getters) {
+			for (String word : words(getter.get(bean).get())) {
+				text.append(' ').append(word);
+			}
+		}
+		return text.toString();
+	}
+	
+	private static List<String> words(String text) {
+		List<String> words = new ArrayList<String>();
+		if (text == null) {
+			return words;
+		}
+		for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+			if (!word.isEmpty()) {
+				words.add(word);
+			}
+		}
+		return words;
+	}
+	
+	// trigrams of each word, with the start of the word padded so short words (and word starts) have some
+	private static Set<String> grams(String text) {
+		Set<String> grams = new LinkedHashSet<String>();
+		for (String word : text.split(" ")) {
+			if (!word.isEmpty()) {
+				addGrams("  " + word, grams);
+			}
+		}
+		return grams;
+	}
+	
+	private static void addGrams(String padded, Set<String> grams) {
+		for (int i = 0; i + GRAM <= padded.length(); i++) {
+			grams.add(padded.substring(i, i + GRAM));
+		}
+	}
+	
+	// the grams a query word needs: anywhere in a word if it is long enough, otherwise at the start of a word
+	private static Set<String> queryGrams(String word) {
+		Set<String> grams = new LinkedHashSet<String>();
+		addGrams(word.length() >= GRAM ? word : "  ".substring(word.length() - 1) + word, grams);
+		return grams;
+	}
+	
+	private static boolean matches(String text, List<String> words) {
+		if (words.isEmpty()) {
+			return false;
+		}
+		for (String word : words) {
+			if (!text.contains(word.length() >= GRAM ? word : " " + word)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private Postings matches(List<String> words) {
+		Postings matches = new Postings();
+		if (words.isEmpty()) {
+			return matches;
+		}
+		List<Postings> needed = new ArrayList<Postings>();
+		for (String word : words) {
+			for (String gram : queryGrams(word)) {
+				Postings posting = postings.get(gram);
+				if (posting == null) {
+					return matches;
+				}
+				needed.add(posting);
+			}
+		}
+		Collections.sort(needed, new Comparator<Postings>() {
+			@Override
+			public int compare(Postings o1, Postings o2) {
+				return o1.size - o2.size;
+			}
+		});
+		Postings rarest = needed.get(0);
+		candidates: for (int i = 0; i < rarest.size; i++) {
+			int id = rarest.ids[i];
+			for (int j = 1; j < needed.size(); j++) {
+				if (!needed.get(j).contains(id)) {
+					continue candidates;
+				}
+			}
+			// the grams can come from different words, so the text is checked
+			if (matches(byId.get(id).text, words)) {
+				matches.ids = matches.size == matches.ids.length ? Arrays.copyOf(matches.ids, matches.size * 2) : matches.ids;
+				matches.ids[matches.size++] = id;
+			}
+		}
+		return matches;
+	}
+	
+	/**
+	 * The beans that match a query, kept up to date as the beans change. The
+	 * beans are not in list order. Changing the query only fires the beans
+	 * that stop and start matching.
+	 */
+	public class SearchResults extends ReadOnlyObservableListBase<B> implements Releasable {
+		private String query;
+		private List<String> words;
+		// ids of the matching beans, in ascending order
+		private Postings matching;
+		// what matched before the change being made, null when there is none
+		private Postings before;
+		private List<B> beforeBeans;
+		private final Set<Entry<B>> updated = Collections.newSetFromMap(new IdentityHashMap<Entry<B>, Boolean>());
+		
+		private SearchResults(String query) {
+			this.query = query;
+			this.words = words(query);
+			this.matching = matches(words);
+		}
+		
+		public void setQuery(String query) {
+			Postings newMatching = matches(words(query));
+			this.query = query;
+			this.words = words(query);
+			changing();
+			matching = newMatching;
+			fireChange();
+		}
+		
+		public String getQuery() {
+			return query;
+		}
+		
+		@Override
+		public B get(int index) {
+			if (index < 0 || index >= matching.size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + matching.size);
+			}
+			return byId.get(matching.ids[index]).bean;
+		}
+		
+		@Override
+		public int size() {
+			return matching.size;
+		}
+		
+		/**
+		 * Stops following the index, the results are emptied.
+		 */
+		@Override
+		public void release() {
+			searches.remove(this);
+			changing();
+			matching = new Postings();
+			fireChange();
+		}
+		
+		private void check(Entry<B> entry) {
+			changing();
+			boolean matches = matches(entry.text, words);
+			if (matching.contains(entry.id) && matches) {
+				updated.add(entry);
+			} else if (matches) {
+				matching.add(entry.id);
+			} else {
+				matching.remove(entry.id);
+			}
+		}
+		
+		private void remove(Entry<B> entry) {
+			changing();
+			matching.remove(entry.id);
+		}
+		
+		private void changing() {
+			if (before == null) {
+				before = matching.copy();
+				beforeBeans = new ArrayList<B>(this);
+			}
+		}
+		
+		/**
+		 * Walks what matched before and what matches now (both by id) and
+		 * fires the difference, so the positions are in ascending order.
+		 */
+		private void fireChange() {
+			if (before == null) {
+				return;
+			}
+			RecordedChange.Builder<B> change = new RecordedChange.Builder<B>();
+			int i = 0;
+			int j = 0;
+			while (i < before.size || j < matching.size) {
+				if (j == matching.size || (i < before.size && before.ids[i] < matching.ids[j])) {
+					change.removed(j, Collections.singletonList(beforeBeans.get(i++)));
+				} else if (i == before.size || matching.ids[j] < before.ids[i]) {
+					change.added(j, j + 1);
+					j++;
+				} else {
+					Entry<B> entry = byId.get(matching.ids[j]);
+					if (entry.bean != beforeBeans.get(i)) {
+						// the id of a removed bean was given to a new one
+						change.removed(j, Collections.singletonList(beforeBeans.get(i)));
+						change.added(j, j + 1);
+					} else if (updated.contains(entry)) {
+						change.updated(j, j + 1);
+					}
+					i++;
+					j++;
+				}
+			}
+			before = null;
+			beforeBeans = null;
+			updated.clear();
+			fire(change);
+		}
+	}
+	
+	private static class Entry<B> {
+		private final B bean;
+		private final int id;
+		private String text;
+		private int occurrences;
+		
+		private Entry(B bean, int id, String text) {
+			this.bean = bean;
+			this.id = id;
+			this.text = text;
+		}
+	}
+	
+	// a sorted set of ids
+	private static class Postings {
+		private int[] ids = new int[4];
+		private int size;
+		
+		private Postings copy() {
+			Postings copy = new Postings();
+			copy.ids = Arrays.copyOf(ids, Math.max(4, size));
+			copy.size = size;
+			return copy;
+		}
+		
+		private boolean contains(int id) {
+			return Arrays.binarySearch(ids, 0, size, id) >= 0;
+		}
+		
+		private void add(int id) {
+			int index = Arrays.binarySearch(ids, 0, size, id);
+			if (index >= 0) {
+				return;
+			}
+			index = -index - 1;
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			System.arraycopy(ids, index, ids, index + 1, size - index);
+			ids[index] = id;
+			size++;
+		}
+		
+		private void remove(int id) {
+			int index = Arrays.binarySearch(ids, 0, size, id);
+			if (index >= 0) {
+				System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+				size--;
+			}
+		}
+	}
+	
+	private class Listener extends ListChangeListenerAdapter<B> {
+		@Override
+		public void onChanged(ListChangeListener.Change<? extends B> c) {
+			super.onChanged(c);
+			for (SearchResults results : searches) {
+				results.fireChange();
+			}
+		}
+		
+		@Override
+		public void updatedChange(int index, B bean) {
+			updated(bean);
+		}
+		
+		@Override
+		public void removedChange(int index, B bean) {
+			removed(bean);
+		}
+		
+		@Override
+		public void addedChange(int index, B bean) {
+			added(bean);
+		}
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.IdentityHashMap;
+import java.util.Objects;
+
+import com.artclod.javafx.Releasable;
+import com.artclod.javafx.swap.beans.getter.PropertyGetter;
+
+/**
+ * Follows the value of a property on every bean of a {@link BeanObservableList}
+ * and tells a callback about values coming, going and changing. The last
+ * value seen for each bean is kept (beans are compared by identity) so the
+ * callback gets the old value of a change, which the property can't give.
+ * 
+ * @param <K> The property value type
+ * @param <B> The bean type
+ */
+class BeanValueTracker<K, B> implements Releasable {
+	private final BeanObservableList<B> list;
+	private final PropertyGetter<?, ? extends K, B> getter;
+	private final Callback<K, B> callback;
+	private final IdentityHashMap<B, Entry<K>> entries = new IdentityHashMap<B, Entry<K>>();
+	private final Listener listener = new Listener();
+	
+	/**
+	 * Tells the callback about the beans already in the list, then follows it.
+	 * The getter is watched by the list until the tracker is released.
+	 */
+	BeanValueTracker(BeanObservableList<B> list, PropertyGetter<?, ? extends K, B> getter, Callback<K, B> callback) {
+		this.list = list;
+		this.getter = getter;
+		this.callback = callback;
+		list.addViewGetter(getter);
+		for (B bean : list) {
+			added(bean);
+		}
+		list.addListener(listener);
+	}
+	
+	/**
+	 * @return how many times the bean is in the list
+	 */
+	int occurrences(B bean) {
+		Entry<K> entry = entries.get(bean);
+		return entry == null ? 0 : entry.occurrences;
+	}
+	
+	/**
+	 * Stops following the list and gives up watching the getter (it stays watched if others still rely on it).
+	 */
+	@Override
+	public void release() {
+		list.removeListener(listener);
+		list.removeViewGetter(getter);
+	}
+	
+	private void added(B bean) {
+		if (bean == null) {
+			return;
+		}
+		Entry<K> entry = entries.get(bean);
+		if (entry == null) {
+			entry = new Entry<K>(getter.get(bean).getValue());
+			entries.put(bean, entry);
+		} else {
+			// a bean updated and moved in one change is added again (before it is removed) without an update
+			changed(bean, entry);
+		}
+		entry.occurrences++;
+		callback.added(bean, entry.value);
+	}
+	
+	private void removed(B bean) {
+		Entry<K> entry = entries.get(bean);
+		if (entry == null) {
+			return;
+		}
+		if (--entry.occurrences == 0) {
+			entries.remove(bean);
+		}
+		callback.removed(bean, entry.value);
+	}
+	
+	private void updated(B bean) {
+		Entry<K> entry = entries.get(bean);
+		if (entry == null) {
+			return;
+		}
+		// a bean that is in the list more than once is updated once per index, only the first sees the change
+		changed(bean, entry);
+	}
+	
+	private void changed(B bean, Entry<K> entry) {
+		K value = getter.get(bean).getValue();
+		if (!Objects.equals(value, entry.value)) {
+			K oldValue = entry.value;
+			entry.value = value;
+			callback.changed(bean, oldValue, value);
+		}
+	}
+	
+	private static class Entry<K> {
+		private K value;
+		private int occurrences;
+		
+		private Entry(K value) {
+			this.value = value;
+		}
+	}
+	
+	private class Listener extends ListChangeListenerAdapter<B> {
+		@Override
+		public void updatedChange(int index, B bean) {
+			updated(bean);
+		}
+		
+		@Override
+		public void removedChange(int index, B bean) {
+			removed(bean);
+		}
+		
+		@Override
+		public void addedChange(int index, B bean) {
+			added(bean);
+		}
+	}
+	
+	// ====== Required Callback ======
+	static interface Callback<K, B> {
+		
+		/**
+		 * Called every time the bean is added, after it has been counted.
+		 */
+		public void added(B bean, K value);
+		
+		/**
+		 * Called every time the bean is removed, after it has been counted.
+		 */
+		public void removed(B bean, K value);
+		
+		/**
+		 * Called once for a bean whose value changed, however many times it is in the list.
+		 */
+		public void changed(B bean, K oldValue, K newValue);
+	}
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A list stored as a sequence of bounded chunks. Inserting or removing a range
+ * costs time proportional to the size of the range plus the number of chunks,
+ * rather than the size of the list. Elements remember where they are stored
+ * so they can find their own index without a scan. Null elements are allowed
+ * but can't be located by {@link #indexOf(Element)}.
+ */
+class ChunkedList<E extends ChunkedList.Element> implements Iterable<E> {
+	static final int DEFAULT_CHUNK_SIZE = 512;
+
+	private final int chunkSize;
+	private final int maxChunkSize;
+	private final List<Chunk> chunks = new ArrayList<Chunk>();
+	private int size = 0;
+	// chunks before this position have an up to date position and start
+	private int firstStaleChunk = 0;
+
+	ChunkedList() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	ChunkedList(int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must be positive, was " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+		this.maxChunkSize = 2 * chunkSize;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	E get(int index) {
+		checkIndex(index);
+		Chunk chunk = chunkAt(index);
+		return chunk.get(index - chunk.start);
+	}
+
+	E set(int index, E element) {
+		checkIndex(index);
+		Chunk chunk = chunkAt(index);
+		E old = chunk.get(index - chunk.start);
+		detach(old);
+		chunk.set(index - chunk.start, element);
+		return old;
+	}
+
+	/**
+	 * @return the index of this element, or -1 if it is not in a ChunkedList
+	 */
+	int indexOf(Element element) {
+		if (element.chunk == null) {
+			return -1;
+		}
+		refresh();
+		return element.chunk.start + element.indexInChunk;
+	}
+
+	void add(int index, E element) {
+		List<E> elements = new ArrayList<E>(1);
+		elements.add(element);
+		addAll(index, elements);
+	}
+
+	void addAll(int index, List<? extends E> elements) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		if (elements.isEmpty()) {
+			return;
+		}
+		if (chunks.isEmpty()) {
+			insertChunks(0, new ArrayList<E>(elements));
+		} else {
+			// appends go into the last chunk, chunkAt brings its start up to date
+			Chunk chunk = chunkAt(index == size ? size - 1 : index);
+			int offset = index - chunk.start;
+			if (chunk.size + elements.size() <= maxChunkSize) {
+				chunk.insert(offset, elements);
+				stale(chunk.position + 1);
+			} else {
+				// split the chunk at the insertion point and chunk up the new elements and its tail
+				List<E> toChunk = new ArrayList<E>(elements.size() + chunk.size - offset);
+				toChunk.addAll(elements);
+				toChunk.addAll(chunk.removeFrom(offset));
+				int position = chunk.position;
+				if (chunk.size == 0) {
+					chunks.remove(position);
+				} else {
+					position++;
+				}
+				insertChunks(position, toChunk);
+			}
+		}
+		size += elements.size();
+	}
+
+	/**
+	 * Removes the elements in [from, to)
+	 * 
+	 * @return the removed elements in order
+	 */
+	List<E> remove(int from, int to) {
+		if (from < 0 || to > size || from > to) {
+			throw new IndexOutOfBoundsException("Range: [" + from + ", " + to + "), Size: " + size);
+		}
+		List<E> removed = new ArrayList<E>(to - from);
+		if (from == to) {
+			return removed;
+		}
+		Chunk first = chunkAt(from);
+		int firstPosition = first.position;
+		int position = firstPosition;
+		int offset = from - first.start;
+		int remaining = to - from;
+		int firstEmptied = -1;
+		int lastEmptied = -1;
+		while (remaining > 0) {
+			Chunk chunk = chunks.get(position);
+			int count = Math.min(remaining, chunk.size - offset);
+			chunk.removeRange(offset, offset + count, removed);
+			if (chunk.size == 0) {
+				if (firstEmptied < 0) {
+					firstEmptied = position;
+				}
+				lastEmptied = position;
+			}
+			remaining -= count;
+			offset = 0;
+			position++;
+		}
+		for (E element : removed) {
+			detach(element);
+		}
+		if (firstEmptied >= 0) {
+			chunks.subList(firstEmptied, lastEmptied + 1).clear();
+		}
+		size -= removed.size();
+		stale(firstPosition);
+		mergeSmallChunks(Math.max(0, firstPosition - 1));
+		return removed;
+	}
+
+	/**
+	 * Moves the element at each index i in [from, to) to permutation[i - from]
+	 */
+	void permute(int from, int to, int[] permutation) {
+		if (from < 0 || to > size || from > to) {
+			throw new IndexOutOfBoundsException("Range: [" + from + ", " + to + "), Size: " + size);
+		}
+		Object[] permuted = new Object[to - from];
+		int i = 0;
+		for (Iterator<E> iterator = iterator(from); i < permuted.length; i++) {
+			permuted[permutation[i] - from] = iterator.next();
+		}
+		Chunk chunk = from < to ? chunkAt(from) : null;
+		int offset = from - (chunk == null ? 0 : chunk.start);
+		for (i = 0; i < permuted.length; i++, offset++) {
+			if (offset == chunk.size) {
+				chunk = chunks.get(chunk.position + 1);
+				offset = 0;
+			}
+			@SuppressWarnings("unchecked")
+			E element = (E) permuted[i];
+			chunk.set(offset, element);
+		}
+	}
+
+	void clear() {
+		for (E element : this) {
+			detach(element);
+		}
+		chunks.clear();
+		size = 0;
+		firstStaleChunk = 0;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return iterator(0);
+	}
+
+	Iterator<E> iterator(final int from) {
+		return new Iterator<E>() {
+			private int index = from;
+			private Chunk chunk = (from < size) ? chunkAt(from) : null;
+			private int offset = (chunk == null) ? 0 : from - chunk.start;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public E next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				if (offset == chunk.size) {
+					chunk = chunks.get(chunk.position + 1);
+					offset = 0;
+				}
+				index++;
+				return chunk.get(offset++);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("Use remove(from, to)");
+			}
+		};
+	}
+
+	private void insertChunks(int position, List<E> elements) {
+		List<Chunk> newChunks = new ArrayList<Chunk>(elements.size() / chunkSize + 1);
+		for (int from = 0; from < elements.size(); from += chunkSize) {
+			List<E> chunkElements = elements.subList(from, Math.min(elements.size(), from + chunkSize));
+			Chunk chunk = new Chunk(chunkElements.size());
+			chunk.insert(0, chunkElements);
+			newChunks.add(chunk);
+		}
+		chunks.addAll(position, newChunks);
+		stale(position);
+	}
+
+	private void mergeSmallChunks(int position) {
+		refresh();
+		for (int i = position; i < Math.min(position + 2, chunks.size() - 1); i++) {
+			Chunk chunk = chunks.get(i);
+			Chunk next = chunks.get(i + 1);
+			if (chunk.size + next.size <= chunkSize) {
+				chunk.insert(chunk.size, next.removeFrom(0));
+				chunks.remove(i + 1);
+				stale(i + 1);
+				refresh();
+			}
+		}
+	}
+
+	private void detach(E element) {
+		if (element != null) {
+			element.chunk = null;
+		}
+	}
+
+	private Chunk chunkAt(int index) {
+		refresh();
+		int low = 0;
+		int high = chunks.size() - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (chunks.get(middle).start <= index) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return chunks.get(low);
+	}
+
+	private void stale(int position) {
+		firstStaleChunk = Math.min(firstStaleChunk, position);
+	}
+
+	private void refresh() {
+		for (int i = firstStaleChunk; i < chunks.size(); i++) {
+			Chunk chunk = chunks.get(i);
+			chunk.position = i;
+			chunk.start = (i == 0) ? 0 : chunks.get(i - 1).start + chunks.get(i - 1).size;
+		}
+		firstStaleChunk = chunks.size();
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	/**
+	 * Elements of a ChunkedList know where they are stored. An element should
+	 * only be in one ChunkedList (at one index) at a time.
+	 */
+	abstract static class Element {
+		ChunkedList<?>.Chunk chunk;
+		int indexInChunk;
+	}
+
+	private class Chunk {
+		// chunks start out full and only grow (up to maxChunkSize) when inserted into
+		private Object[] items;
+		private int size = 0;
+		private int start = 0;
+		private int position = 0;
+
+		Chunk(int capacity) {
+			this.items = new Object[capacity];
+		}
+
+		@SuppressWarnings("unchecked")
+		E get(int offset) {
+			return (E) items[offset];
+		}
+
+		void set(int offset, E element) {
+			items[offset] = element;
+			if (element != null) {
+				element.chunk = this;
+				element.indexInChunk = offset;
+			}
+		}
+
+		void insert(int offset, List<? extends E> elements) {
+			int count = elements.size();
+			if (size + count > items.length) {
+				items = Arrays.copyOf(items, Math.min(maxChunkSize, Math.max(size + count, items.length + (items.length >> 1))));
+			}
+			System.arraycopy(items, offset, items, offset + count, size - offset);
+			for (int i = 0; i < count; i++) {
+				set(offset + i, elements.get(i));
+			}
+			size += count;
+			renumber(offset + count);
+		}
+
+		List<E> removeFrom(int offset) {
+			List<E> removed = new ArrayList<E>(size - offset);
+			removeRange(offset, size, removed);
+			return removed;
+		}
+
+		void removeRange(int from, int to, List<E> removed) {
+			for (int i = from; i < to; i++) {
+				removed.add(get(i));
+			}
+			System.arraycopy(items, to, items, from, size - to);
+			for (int i = size - (to - from); i < size; i++) {
+				items[i] = null;
+			}
+			size -= to - from;
+			renumber(from);
+		}
+
+		private void renumber(int from) {
+			for (int i = from; i < size; i++) {
+				E element = get(i);
+				if (element != null) {
+					element.indexInChunk = i;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javafx.beans.property.Property;
+import javafx.collections.ListChangeListener;
+
+import com.artclod.javafx.Releasable;
+import com.artclod.javafx.swap.beans.getter.Getter;
+
+/**
+ * The beans of a {@link BeanObservableList} that pass a filter. When a bean
+ * updates only that bean is tested again, and the view fires a single add,
+ * remove or update for it. Finding its place in the view is a binary search
+ * over the (ascending) source indexes of the beans that pass.
+ * 
+ * @param <B> The bean type
+ */
+public class FilteredBeanList<B> extends ReadOnlyObservableListBase<B> implements Releasable {
+	private final BeanObservableList<B> source;
+	private final List<Getter<? extends Property<?>, B>> watched;
+	private final SourceListener sourceListener = new SourceListener();
+	private BeanFilter<? super B> filter;
+	// source indexes of the beans that pass, in ascending order
+	private int[] filtered = new int[16];
+	private int size;
+	
+	/**
+	 * @param watched getters of the properties the filter reads, they are watched by the source until this is released
+	 */
+	@SafeVarargs
+	public FilteredBeanList(BeanObservableList<B> source, BeanFilter<? super B> filter, Getter<? extends Property<?>, B>... watched) {
+		this.source = source;
+		this.filter = filter;
+		this.watched = new ArrayList<Getter<? extends Property<?>, B>>(watched.length);
+		for (Getter<? extends Property<?>, B> getter : watched) {
+			this.watched.add(getter);
+			source.addViewGetter(getter);
+		}
+		for (int i = 0; i < source.size(); i++) {
+			if (filter.accept(source.get(i))) {
+				insert(size, i);
+			}
+		}
+		source.addListener(sourceListener);
+	}
+	
+	/**
+	 * Tests every bean with a new filter, firing only the adds and removes this causes.
+	 */
+	public void setFilter(BeanFilter<? super B> filter) {
+		this.filter = filter;
+		RecordedChange.Builder<B> change = new RecordedChange.Builder<B>();
+		retest(0, source.size(), false, change);
+		fire(change);
+	}
+	
+	public BeanFilter<? super B> getFilter() {
+		return filter;
+	}
+	
+	/**
+	 * @return the index in the source list of the bean at this index in the view
+	 */
+	public int getSourceIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return filtered[index];
+	}
+	
+	@Override
+	public B get(int index) {
+		return source.get(getSourceIndex(index));
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public void release() {
+		source.removeListener(sourceListener);
+		for (Getter<? extends Property<?>, B> getter : watched) {
+			source.removeViewGetter(getter);
+		}
+	}
+	
+	private void retest(int from, int to, boolean fireUpdates, RecordedChange.Builder<B> change) {
+		int position = lowerBound(from);
+		for (int i = from; i < to; i++) {
+			B bean = source.get(i);
+			boolean passes = filter.accept(bean);
+			boolean present = position < size && filtered[position] == i;
+			if (present && passes) {
+				if (fireUpdates) {
+					change.updated(position, position + 1);
+				}
+				position++;
+			} else if (present) {
+				removeFiltered(position, position + 1);
+				change.removed(position, Collections.singletonList(bean));
+			} else if (passes) {
+				insert(position, i);
+				change.added(position, position + 1);
+				position++;
+			}
+		}
+	}
+	
+	private void permute(ListChangeListener.Change<? extends B> c, RecordedChange.Builder<B> change) {
+		int from = lowerBound(c.getFrom());
+		int to = lowerBound(c.getTo());
+		if (from == to) {
+			return;
+		}
+		int[] moved = new int[to - from];
+		for (int i = from; i < to; i++) {
+			moved[i - from] = c.getPermutation(filtered[i]);
+		}
+		int[] sorted = moved.clone();
+		Arrays.sort(sorted);
+		int[] permutation = new int[to - from];
+		for (int i = 0; i < moved.length; i++) {
+			permutation[i] = from + Arrays.binarySearch(sorted, moved[i]);
+		}
+		System.arraycopy(sorted, 0, filtered, from, sorted.length);
+		change.permutated(from, to, permutation);
+	}
+	
+	private void replace(ListChangeListener.Change<? extends B> c, RecordedChange.Builder<B> change) {
+		int from = lowerBound(c.getFrom());
+		int to = lowerBound(c.getFrom() + c.getRemovedSize());
+		List<B> removed = new ArrayList<B>(to - from);
+		for (int i = from; i < to; i++) {
+			removed.add(c.getRemoved().get(filtered[i] - c.getFrom()));
+		}
+		removeFiltered(from, to);
+		int shift = c.getAddedSize() - c.getRemovedSize();
+		for (int i = from; i < size; i++) {
+			filtered[i] += shift;
+		}
+		int position = from;
+		for (int i = c.getFrom(); i < c.getTo(); i++) {
+			if (filter.accept(c.getList().get(i))) {
+				insert(position++, i);
+			}
+		}
+		change.replaced(from, position, removed);
+	}
+	
+	// the position of the first bean at or after this source index
+	private int lowerBound(int sourceIndex) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (filtered[middle] < sourceIndex) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+	
+	private void insert(int position, int sourceIndex) {
+		if (size == filtered.length) {
+			filtered = Arrays.copyOf(filtered, size * 2);
+		}
+		System.arraycopy(filtered, position, filtered, position + 1, size - position);
+		filtered[position] = sourceIndex;
+		size++;
+	}
+	
+	private void removeFiltered(int from, int to) {
+		System.arraycopy(filtered, to, filtered, from, size - to);
+		size -= to - from;
+	}
+	
+	private class SourceListener implements ListChangeListener<B> {
+		@Override
+		public void onChanged(Change<? extends B> c) {
+			RecordedChange.Builder<B> change = new RecordedChange.Builder<B>();
+			while (c.next()) {
+				if (c.wasPermutated()) {
+					permute(c, change);
+				} else if (c.wasUpdated()) {
+					retest(c.getFrom(), c.getTo(), true, change);
+				} else {
+					replace(c, change);
+				}
+			}
+			fire(change);
+		}
+	}
+}
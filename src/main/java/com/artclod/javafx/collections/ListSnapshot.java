@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import javafx.collections.ListChangeListener;
+
+/**
+ * An immutable copy of a list at one point in time, see
+ * {@link BeanObservableList#snapshot()}. It shares its chunks of elements
+ * with the other snapshots of the list, so it can be made without copying
+ * the elements, and can be read from any thread. Only the list is copied,
+ * the beans in it are not.
+ * 
+ * @param <E> The element type
+ */
+public final class ListSnapshot<E> extends AbstractList<E> implements RandomAccess {
+	private final Object[][] chunks;
+	// the index of the first element of each chunk
+	private final int[] starts;
+	private final int size;
+	
+	private ListSnapshot(Object[][] chunks) {
+		this.chunks = chunks;
+		this.starts = new int[chunks.length];
+		int start = 0;
+		for (int i = 0; i < chunks.length; i++) {
+			starts[i] = start;
+			start += chunks[i].length;
+		}
+		this.size = start;
+	}
+	
+	@Override
+	public E get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int chunk = Arrays.binarySearch(starts, index);
+		if (chunk < 0) {
+			chunk = -chunk - 2;
+		}
+		@SuppressWarnings("unchecked")
+		E element = (E) chunks[chunk][index - starts[chunk]];
+		return element;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private int chunk;
+			private int offset;
+			
+			@Override
+			public boolean hasNext() {
+				return chunk < chunks.length;
+			}
+			
+			@Override
+			public E next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				@SuppressWarnings("unchecked")
+				E element = (E) chunks[chunk][offset++];
+				if (offset == chunks[chunk].length) {
+					chunk++;
+					offset = 0;
+				}
+				return element;
+			}
+			
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("Snapshots can not be modified");
+			}
+		};
+	}
+	
+	/**
+	 * Follows a list in chunks that are never modified (a change replaces the
+	 * chunks it touches), so snapshots can share them.
+	 */
+	static class Chunks<E> implements ListChangeListener<E> {
+		private static final int CHUNK = 1024;
+		
+		private final List<Object[]> chunks = new ArrayList<Object[]>();
+		private ListSnapshot<E> snapshot;
+		
+		Chunks(List<? extends E> list) {
+			replace(0, 0, list);
+		}
+		
+		ListSnapshot<E> snapshot() {
+			if (snapshot == null) {
+				snapshot = new ListSnapshot<E>(chunks.toArray(new Object[chunks.size()][]));
+			}
+			return snapshot;
+		}
+		
+		@Override
+		public void onChanged(Change<? extends E> c) {
+			while (c.next()) {
+				if (c.wasPermutated() || c.wasUpdated()) {
+					replace(c.getFrom(), c.getTo() - c.getFrom(), c.getList().subList(c.getFrom(), c.getTo()));
+				} else {
+					replace(c.getFrom(), c.getRemovedSize(), c.getAddedSubList());
+				}
+			}
+		}
+		
+		// replaces the chunks holding [from, from + removed) with new chunks that have the added elements instead
+		private void replace(int from, int removed, List<? extends E> added) {
+			if (removed == 0 && added.isEmpty()) {
+				return;
+			}
+			snapshot = null;
+			int first = 0;
+			int firstStart = 0;
+			while (first < chunks.size() && firstStart + chunks.get(first).length <= from) {
+				firstStart += chunks.get(first).length;
+				first++;
+			}
+			if (first == chunks.size() && first > 0) {
+				// adding at the end goes into the last chunk
+				first--;
+				firstStart -= chunks.get(first).length;
+			}
+			int end = from + removed;
+			int last = first;
+			int lastEnd = firstStart;
+			while (last < chunks.size() && (last == first || lastEnd < end)) {
+				lastEnd += chunks.get(last).length;
+				last++;
+			}
+			if (last < chunks.size() && lastEnd - firstStart - removed + added.size() < CHUNK / 2) {
+				// too small on its own, take in the next chunk
+				lastEnd += chunks.get(last).length;
+				last++;
+			}
+			
+			Object[] elements = new Object[lastEnd - firstStart - removed + added.size()];
+			int position = 0;
+			int start = firstStart;
+			for (int i = first; i < last; i++) {
+				Object[] chunk = chunks.get(i);
+				for (int j = 0; j < chunk.length; j++) {
+					if (start + j == from) {
+						for (E element : added) {
+							elements[position++] = element;
+						}
+					}
+					if (start + j < from || start + j >= end) {
+						elements[position++] = chunk[j];
+					}
+				}
+				start += chunk.length;
+			}
+			if (from == lastEnd) {
+				for (E element : added) {
+					elements[position++] = element;
+				}
+			}
+			
+			List<Object[]> replacements = new ArrayList<Object[]>();
+			int pieces = (elements.length + CHUNK - 1) / CHUNK;
+			for (int i = 0; i < pieces; i++) {
+				replacements.add(Arrays.copyOfRange(elements, (int) ((long) elements.length * i / pieces), (int) ((long) elements.length * (i + 1) / pieces)));
+			}
+			List<Object[]> replaced = chunks.subList(first, last);
+			replaced.clear();
+			replaced.addAll(replacements);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.beans.InvalidationListener;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ListChangeListener.Change;
+import javafx.collections.ObservableList;
+
+/**
+ * Keeps track of the listeners registered on an {@link ObservableList} and
+ * fires changes to them, for lists that generate their own changes.
+ */
+class ObservableListListeners<E> {
+	private final ObservableList<E> source;
+	private final List<InvalidationListener> invalidationListeners = new ArrayList<InvalidationListener>();
+	private final List<ListChangeListener<? super E>> changeListeners = new ArrayList<ListChangeListener<? super E>>();
+
+	ObservableListListeners(ObservableList<E> source) {
+		this.source = source;
+	}
+
+	void addInvalidationListener(InvalidationListener listener) {
+		if (listener == null) {
+			throw new NullPointerException("Listener can not be null");
+		}
+		invalidationListeners.add(listener);
+	}
+
+	void addChangeListener(ListChangeListener<? super E> listener) {
+		if (listener == null) {
+			throw new NullPointerException("Listener can not be null");
+		}
+		changeListeners.add(listener);
+	}
+
+	void removeInvalidationListener(InvalidationListener listener) {
+		invalidationListeners.remove(listener);
+	}
+
+	void removeChangeListener(ListChangeListener<? super E> listener) {
+		changeListeners.remove(listener);
+	}
+
+	boolean isEmpty() {
+		return invalidationListeners.isEmpty() && changeListeners.isEmpty();
+	}
+
+	/**
+	 * Tells every listener, a listener that throws is reported to the thread's
+	 * uncaught exception handler (like the JavaFX lists do) so the others are
+	 * still told.
+	 */
+	void fire(Change<? extends E> change) {
+		// copy so listeners can (un)register themselves while being notified
+		for (InvalidationListener listener : new ArrayList<InvalidationListener>(invalidationListeners)) {
+			try {
+				listener.invalidated(source);
+			} catch (Exception e) {
+				report(e);
+			}
+		}
+		for (ListChangeListener<? super E> listener : new ArrayList<ListChangeListener<? super E>>(changeListeners)) {
+			change.reset();
+			try {
+				listener.onChanged(change);
+			} catch (Exception e) {
+				report(e);
+			}
+		}
+	}
+
+	private static void report(Exception e) {
+		Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+	}
+}
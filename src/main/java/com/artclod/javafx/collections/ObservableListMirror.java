@@ -63,7 +63,7 @@ public class ObservableListMirror<M, O> implements ObservableList<M> {
 		}
 		
 		public void updatedChange(int index, O element) {
-			throw new UnsupportedOperationException("Coding error, observable array list doesn't seem to use this");
+			// NOOP the original is still the same object so its mirror is still valid
 		}
 		
 		public void removedChange(int index, O item){
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.AbstractList;
+import java.util.Collection;
+
+import javafx.beans.InvalidationListener;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ListChangeListener.Change;
+import javafx.collections.ObservableList;
+
+/**
+ * Base for the views computed from other lists. They can not be modified
+ * directly and fire the changes they work out themselves.
+ */
+public abstract class ReadOnlyObservableListBase<E> extends AbstractList<E> implements ObservableList<E> {
+	private final ObservableListListeners<E> listeners = new ObservableListListeners<E>(this);
+	
+	ReadOnlyObservableListBase() {
+	}
+	
+	void fire(RecordedChange.Builder<E> change) {
+		if (!change.isEmpty()) {
+			fire(change.build(this));
+		}
+	}
+	
+	void fire(Change<? extends E> change) {
+		modCount++;
+		listeners.fire(change);
+	}
+	
+	public void addListener(InvalidationListener listener) {
+		listeners.addInvalidationListener(listener);
+	}
+	
+	public void addListener(ListChangeListener<? super E> listener) {
+		listeners.addChangeListener(listener);
+	}
+	
+	public void removeListener(InvalidationListener listener) {
+		listeners.removeInvalidationListener(listener);
+	}
+	
+	public void removeListener(ListChangeListener<? super E> listener) {
+		listeners.removeChangeListener(listener);
+	}
+	
+	// ====== Methods below here throw unsupported exceptions ======
+	@SuppressWarnings("unchecked")
+	public boolean addAll(E... elements) {
+		throw new UnsupportedOperationException("Views should not be modified directly, modify their source");
+	}
+	
+	@SuppressWarnings("unchecked")
+	public boolean setAll(E... elements) {
+		throw new UnsupportedOperationException("Views should not be modified directly, modify their source");
+	}
+	
+	public boolean setAll(Collection<? extends E> col) {
+		throw new UnsupportedOperationException("Views should not be modified directly, modify their source");
+	}
+	
+	@SuppressWarnings("unchecked")
+	public boolean removeAll(E... elements) {
+		throw new UnsupportedOperationException("Views should not be modified directly, modify their source");
+	}
+	
+	@SuppressWarnings("unchecked")
+	public boolean retainAll(E... elements) {
+		throw new UnsupportedOperationException("Views should not be modified directly, modify their source");
+	}
+	
+	public void remove(int from, int to) {
+		throw new UnsupportedOperationException("Views should not be modified directly, modify their source");
+	}
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import javafx.collections.ListChangeListener.Change;
+import javafx.collections.ObservableList;
+
+/**
+ * A {@link Change} built from a fixed list of sub changes. This lets lists that
+ * manage their own listeners fire changes (including updates) for any source list.
+ */
+class RecordedChange<E> extends Change<E> {
+	private static final int[] NO_PERMUTATION = new int[0];
+
+	private final List<SubChange<E>> subChanges;
+	private int cursor = -1;
+
+	RecordedChange(ObservableList<E> list, List<SubChange<E>> subChanges) {
+		super(list);
+		this.subChanges = subChanges;
+	}
+
+	static <E> RecordedChange<E> updated(ObservableList<E> list, int from, int to) {
+		return new RecordedChange<E>(list, Collections.singletonList(SubChange.<E> updated(from, to)));
+	}
+
+	/**
+	 * @param sortedIndices the updated indices in ascending order, without duplicates
+	 * @return a change with one updated sub change per contiguous range of indices
+	 */
+	static <E> RecordedChange<E> updated(ObservableList<E> list, int[] sortedIndices) {
+		List<SubChange<E>> subChanges = new ArrayList<SubChange<E>>();
+		int i = 0;
+		while (i < sortedIndices.length) {
+			int from = sortedIndices[i];
+			int to = from + 1;
+			while (++i < sortedIndices.length && sortedIndices[i] == to) {
+				to++;
+			}
+			subChanges.add(SubChange.<E> updated(from, to));
+		}
+		return new RecordedChange<E>(list, subChanges);
+	}
+
+	/**
+	 * Copies the sub changes of another change so they can be fired again with a new source list.
+	 */
+	static <E> RecordedChange<E> copyOf(ObservableList<E> list, Change<? extends E> change) {
+		List<SubChange<E>> subChanges = new ArrayList<SubChange<E>>();
+		change.reset();
+		while (change.next()) {
+			subChanges.add(SubChange.copyOf(change));
+		}
+		change.reset();
+		return new RecordedChange<E>(list, subChanges);
+	}
+
+	/**
+	 * Works out the change from before to the current contents of the list,
+	 * comparing elements by identity. Elements that keep their relative order
+	 * stay put (and are updated if they are in updated), the others are
+	 * removed and added again. The sub changes are in ascending order.
+	 * 
+	 * @param updated elements whose properties changed, compared by identity
+	 */
+	static <E> RecordedChange<E> diff(ObservableList<E> list, Object[] before, Set<?> updated) {
+		Builder<E> builder = new Builder<E>();
+		int size = list.size();
+		int prefix = 0;
+		while (prefix < before.length && prefix < size && before[prefix] == list.get(prefix)) {
+			prefix++;
+		}
+		int suffix = 0;
+		while (suffix < before.length - prefix && suffix < size - prefix && before[before.length - 1 - suffix] == list.get(size - 1 - suffix)) {
+			suffix++;
+		}
+		int oldEnd = before.length - suffix;
+		int newEnd = size - suffix;
+		// where each new element was before (-1 if it was not), taking earlier positions first
+		IdentityHashMap<Object, ArrayDeque<Integer>> positions = new IdentityHashMap<Object, ArrayDeque<Integer>>();
+		for (int i = prefix; i < oldEnd; i++) {
+			ArrayDeque<Integer> bean = positions.get(before[i]);
+			if (bean == null) {
+				bean = new ArrayDeque<Integer>();
+				positions.put(before[i], bean);
+			}
+			bean.add(i);
+		}
+		int[] matches = new int[newEnd - prefix];
+		for (int j = prefix; j < newEnd; j++) {
+			ArrayDeque<Integer> bean = positions.get(list.get(j));
+			matches[j - prefix] = bean == null || bean.isEmpty() ? -1 : bean.poll();
+		}
+		boolean[] kept = keepIncreasing(matches, before.length);
+		
+		for (int j = 0; j < prefix; j++) {
+			updated(builder, list, j, updated);
+		}
+		int i = prefix;
+		int j = prefix;
+		while (i < oldEnd || j < newEnd) {
+			int from = j;
+			List<E> removed = new ArrayList<E>();
+			while (true) {
+				if (j < newEnd && matches[j - prefix] < 0) {
+					j++;
+				} else if (i < oldEnd && !kept[i]) {
+					@SuppressWarnings("unchecked")
+					E element = (E) before[i];
+					removed.add(element);
+					i++;
+				} else {
+					break;
+				}
+			}
+			if (from < j || !removed.isEmpty()) {
+				builder.replaced(from, j, removed);
+			}
+			if (i < oldEnd && j < newEnd) {
+				// the kept elements line up
+				updated(builder, list, j, updated);
+				i++;
+				j++;
+			}
+		}
+		for (int k = newEnd; k < size; k++) {
+			updated(builder, list, k, updated);
+		}
+		return builder.build(list);
+	}
+	
+	private static <E> void updated(Builder<E> builder, ObservableList<E> list, int index, Set<?> updated) {
+		if (updated.contains(list.get(index))) {
+			builder.updated(index, index + 1);
+		}
+	}
+	
+	/**
+	 * @return which old positions are in the longest increasing run of matches (which can stay where they are)
+	 */
+	private static boolean[] keepIncreasing(int[] matches, int oldSize) {
+		// patience sorting: tails[k] is the match index ending the best run of length k + 1
+		int[] tails = new int[matches.length];
+		int[] previous = new int[matches.length];
+		int length = 0;
+		for (int j = 0; j < matches.length; j++) {
+			if (matches[j] < 0) {
+				continue;
+			}
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (matches[tails[middle]] < matches[j]) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			previous[j] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = j;
+			if (low == length) {
+				length++;
+			}
+		}
+		boolean[] kept = new boolean[oldSize];
+		int[] inRun = new int[matches.length];
+		Arrays.fill(inRun, -1);
+		for (int j = length > 0 ? tails[length - 1] : -1; j >= 0; j = previous[j]) {
+			kept[matches[j]] = true;
+			inRun[j] = matches[j];
+		}
+		// matches outside the run are moves, so they are added again
+		System.arraycopy(inRun, 0, matches, 0, matches.length);
+		return kept;
+	}
+
+	/**
+	 * Collects the sub changes of a list that changes in several places, in
+	 * the order they happen (so each index is relative to the list after the
+	 * previous sub changes). Adjacent updates, adds and removes are merged.
+	 */
+	static class Builder<E> {
+		private final List<SubChange<E>> subChanges = new ArrayList<SubChange<E>>();
+
+		Builder<E> updated(int from, int to) {
+			SubChange<E> last = last();
+			if (last != null && last.updated && last.to == from) {
+				subChanges.set(subChanges.size() - 1, SubChange.<E> updated(last.from, to));
+			} else if (from < to) {
+				subChanges.add(SubChange.<E> updated(from, to));
+			}
+			return this;
+		}
+
+		Builder<E> added(int from, int to) {
+			return replaced(from, to, Collections.<E> emptyList());
+		}
+
+		Builder<E> removed(int from, List<E> removed) {
+			return replaced(from, from, removed);
+		}
+
+		Builder<E> replaced(int from, int to, List<E> removed) {
+			if (from == to && removed.isEmpty()) {
+				return this;
+			}
+			SubChange<E> last = last();
+			if (last != null && last.isReplace() && last.to == from) {
+				// starts right after the previous replace, so it removes the elements after its removed ones
+				List<E> allRemoved = new ArrayList<E>(last.removed);
+				allRemoved.addAll(removed);
+				subChanges.set(subChanges.size() - 1, SubChange.replaced(last.from, last.to + to - from, allRemoved));
+			} else {
+				subChanges.add(SubChange.replaced(from, to, removed));
+			}
+			return this;
+		}
+
+		Builder<E> permutated(int from, int to, int[] permutation) {
+			subChanges.add(SubChange.<E> permutated(from, to, permutation));
+			return this;
+		}
+
+		boolean isEmpty() {
+			return subChanges.isEmpty();
+		}
+
+		RecordedChange<E> build(ObservableList<E> list) {
+			return new RecordedChange<E>(list, new ArrayList<SubChange<E>>(subChanges));
+		}
+
+		private SubChange<E> last() {
+			return subChanges.isEmpty() ? null : subChanges.get(subChanges.size() - 1);
+		}
+	}
+
+	@Override
+	public boolean next() {
+		if (cursor < subChanges.size()) {
+			cursor++;
+		}
+		return cursor < subChanges.size();
+	}
+
+	@Override
+	public void reset() {
+		cursor = -1;
+	}
+
+	@Override
+	public int getFrom() {
+		return current().from;
+	}
+
+	@Override
+	public int getTo() {
+		return current().to;
+	}
+
+	@Override
+	public List<E> getRemoved() {
+		return current().removed;
+	}
+
+	@Override
+	protected int[] getPermutation() {
+		return current().permutation;
+	}
+
+	@Override
+	public boolean wasUpdated() {
+		return current().updated;
+	}
+
+	private SubChange<E> current() {
+		if (cursor < 0 || cursor >= subChanges.size()) {
+			throw new IllegalStateException("Invalid Change state: next() must be called before inspecting the Change.");
+		}
+		return subChanges.get(cursor);
+	}
+
+	static class SubChange<E> {
+		final int from;
+		final int to;
+		final List<E> removed;
+		final int[] permutation;
+		final boolean updated;
+
+		private SubChange(int from, int to, List<E> removed, int[] permutation, boolean updated) {
+			this.from = from;
+			this.to = to;
+			this.removed = removed;
+			this.permutation = permutation;
+			this.updated = updated;
+		}
+
+		boolean isReplace() {
+			return !updated && permutation.length == 0;
+		}
+
+		static <E> SubChange<E> updated(int from, int to) {
+			return new SubChange<E>(from, to, Collections.<E> emptyList(), NO_PERMUTATION, true);
+		}
+
+		static <E> SubChange<E> replaced(int from, int to, List<E> removed) {
+			return new SubChange<E>(from, to, removed, NO_PERMUTATION, false);
+		}
+
+		static <E> SubChange<E> permutated(int from, int to, int[] permutation) {
+			return new SubChange<E>(from, to, Collections.<E> emptyList(), permutation, false);
+		}
+
+		static <E> SubChange<E> copyOf(Change<? extends E> change) {
+			if (change.wasPermutated()) {
+				int[] permutation = new int[change.getTo() - change.getFrom()];
+				for (int i = change.getFrom(); i < change.getTo(); i++) {
+					permutation[i - change.getFrom()] = change.getPermutation(i);
+				}
+				return permutated(change.getFrom(), change.getTo(), permutation);
+			} else if (change.wasUpdated()) {
+				return updated(change.getFrom(), change.getTo());
+			} else {
+				return replaced(change.getFrom(), change.getTo(), Collections.<E> unmodifiableList(change.getRemoved()));
+			}
+		}
+	}
+}
@@ -0,0 +1,599 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import javafx.beans.property.Property;
+import javafx.collections.ListChangeListener;
+
+import com.artclod.javafx.Releasable;
+import com.artclod.javafx.swap.beans.getter.Getter;
+
+/**
+ * The beans of a {@link BeanObservableList} in the order of a comparator
+ * (see {@link BeanComparator}). When a bean updates and is no longer in order
+ * it is taken out and put back at its binary searched position, firing one
+ * permutation for the rows in between (so selections follow it) and an update.
+ * Beans added to the source are sorted on their own and merged in. Beans that
+ * compare equal stay in the order they were put in the view.
+ * 
+ * @param <B> The bean type
+ */
+public class SortedBeanList<B> extends ReadOnlyObservableListBase<B> implements Releasable {
+	private final BeanObservableList<B> source;
+	private final List<Getter<? extends Property<?>, B>> watched;
+	private final SourceListener sourceListener = new SourceListener();
+	private Comparator<? super B> comparator;
+	private Object[] beans;
+	// the index in the source of each bean in the view, and the index in the view of each bean in the source
+	private int[] sourceIndexes;
+	private int[] viewIndexes;
+	private int size;
+	// how many times each bean is in the view, a bean that is there more than once is repositioned at every place
+	private final IdentityHashMap<Object, Integer> occurrences = new IdentityHashMap<Object, Integer>();
+	
+	/**
+	 * @param watched getters of the properties the comparator reads, they are watched by the source until this is released
+	 */
+	@SafeVarargs
+	public SortedBeanList(BeanObservableList<B> source, Comparator<? super B> comparator, Getter<? extends Property<?>, B>... watched) {
+		this.source = source;
+		this.comparator = comparator;
+		this.watched = new ArrayList<Getter<? extends Property<?>, B>>(watched.length);
+		for (Getter<? extends Property<?>, B> getter : watched) {
+			this.watched.add(getter);
+			source.addViewGetter(getter);
+		}
+		Integer[] order = sortedOrder(source);
+		this.size = order.length;
+		this.beans = new Object[size];
+		this.sourceIndexes = new int[size];
+		for (int i = 0; i < size; i++) {
+			beans[i] = source.get(order[i]);
+			sourceIndexes[i] = order[i];
+			count(beans[i], 1);
+		}
+		updateViewIndexes(0, size);
+		source.addListener(sourceListener);
+	}
+	
+	/**
+	 * Sorts the view by a new comparator, firing a single permutation.
+	 */
+	public void setComparator(Comparator<? super B> comparator) {
+		this.comparator = comparator;
+		Integer[] order = sortedOrder(this);
+		int[] permutation = new int[size];
+		Object[] sortedBeans = new Object[size];
+		int[] sortedSources = new int[size];
+		for (int i = 0; i < size; i++) {
+			permutation[order[i]] = i;
+			sortedBeans[i] = beans[order[i]];
+			sortedSources[i] = sourceIndexes[order[i]];
+		}
+		beans = sortedBeans;
+		sourceIndexes = sortedSources;
+		updateViewIndexes(0, size);
+		if (size > 0) {
+			fire(new RecordedChange.Builder<B>().permutated(0, size, permutation));
+		}
+	}
+	
+	public Comparator<? super B> getComparator() {
+		return comparator;
+	}
+	
+	/**
+	 * @return the index in the source list of the bean at this index in the view
+	 */
+	public int getSourceIndex(int index) {
+		checkIndex(index);
+		return sourceIndexes[index];
+	}
+	
+	/**
+	 * @return the index in this view of the bean at this index in the source list
+	 */
+	public int getViewIndex(int sourceIndex) {
+		checkIndex(sourceIndex);
+		return viewIndexes[sourceIndex];
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public B get(int index) {
+		checkIndex(index);
+		return (B) beans[index];
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public void release() {
+		source.removeListener(sourceListener);
+		for (Getter<? extends Property<?>, B> getter : watched) {
+			source.removeViewGetter(getter);
+		}
+	}
+	
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+	
+	// indexes into the list in sorted order (the sort is stable)
+	private Integer[] sortedOrder(final List<?> list) {
+		Integer[] order = new Integer[list.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return SortedBeanList.this.compare(list.get(o1), list.get(o2));
+			}
+		});
+		return order;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private int compare(Object bean1, Object bean2) {
+		return comparator.compare((B) bean1, (B) bean2);
+	}
+	
+	private void updateViewIndexes(int from, int to) {
+		if (viewIndexes == null || viewIndexes.length < size) {
+			viewIndexes = new int[size];
+		}
+		for (int i = from; i < to; i++) {
+			viewIndexes[sourceIndexes[i]] = i;
+		}
+	}
+	
+	private void count(Object bean, int delta) {
+		Integer count = occurrences.get(bean);
+		int newCount = (count == null ? 0 : count) + delta;
+		if (newCount == 0) {
+			occurrences.remove(bean);
+		} else {
+			occurrences.put(bean, newCount);
+		}
+	}
+	
+	/**
+	 * Marks every place of an updated bean that is in the view more than once,
+	 * the copies not marked would still be placed by the old value. Finding
+	 * them is a scan of the view, which is only done for such beans.
+	 */
+	private void markCopies(boolean[] updated) {
+		Set<Object> copied = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		for (int i = 0; i < size; i++) {
+			if (updated[i] && occurrences.get(beans[i]) > 1) {
+				copied.add(beans[i]);
+			}
+		}
+		for (int i = 0; !copied.isEmpty() && i < size; i++) {
+			updated[i] |= copied.contains(beans[i]);
+		}
+	}
+	
+	private void updated(int[] updatedSources, int count, RecordedChange.Builder<B> change) {
+		boolean[] updated = new boolean[size];
+		for (int i = 0; i < count; i++) {
+			updated[viewIndexes[updatedSources[i]]] = true;
+		}
+		markCopies(updated);
+		int dirtyCount = 0;
+		for (boolean dirty : updated) {
+			dirtyCount += dirty ? 1 : 0;
+		}
+		int[] dirty = new int[dirtyCount];
+		for (int i = 0, d = 0; i < size; i++) {
+			if (updated[i]) {
+				dirty[d++] = i;
+			}
+		}
+		if (inOrder(dirty)) {
+			for (int position : dirty) {
+				change.updated(position, position + 1);
+			}
+		} else if (dirty.length == 1) {
+			move(dirty[0], change);
+		} else {
+			reposition(dirty, change);
+		}
+	}
+	
+	// sorted means every pair of neighbours is in order, only pairs with an updated bean can have changed
+	private boolean inOrder(int[] positions) {
+		for (int position : positions) {
+			if ((position > 0 && compare(beans[position - 1], beans[position]) > 0) || (position < size - 1 && compare(beans[position], beans[position + 1]) > 0)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private void move(int from, RecordedChange.Builder<B> change) {
+		Object bean = beans[from];
+		int sourceIndex = sourceIndexes[from];
+		System.arraycopy(beans, from + 1, beans, from, size - from - 1);
+		System.arraycopy(sourceIndexes, from + 1, sourceIndexes, from, size - from - 1);
+		int to = upperBound(bean, size - 1);
+		System.arraycopy(beans, to, beans, to + 1, size - to - 1);
+		System.arraycopy(sourceIndexes, to, sourceIndexes, to + 1, size - to - 1);
+		beans[to] = bean;
+		sourceIndexes[to] = sourceIndex;
+		
+		int low = Math.min(from, to);
+		int high = Math.max(from, to) + 1;
+		updateViewIndexes(low, high);
+		if (from != to) {
+			int[] permutation = new int[high - low];
+			for (int i = low; i < high; i++) {
+				permutation[i - low] = (i == from) ? to : (from < to ? i - 1 : i + 1);
+			}
+			change.permutated(low, high, permutation);
+		}
+		change.updated(to, to + 1);
+	}
+	
+	// the position after the last bean that is not greater than this one, among the first length beans
+	private int upperBound(Object bean, int length) {
+		int low = 0;
+		int high = length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compare(beans[middle], bean) <= 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+	
+	private void reposition(int[] dirty, RecordedChange.Builder<B> change) {
+		boolean[] dropped = new boolean[size];
+		Object[] moved = new Object[dirty.length];
+		int[] movedSources = new int[dirty.length];
+		for (int i = 0; i < dirty.length; i++) {
+			dropped[dirty[i]] = true;
+			moved[i] = beans[dirty[i]];
+			movedSources[i] = sourceIndexes[dirty[i]];
+		}
+		Integer[] order = sortedOrder(Arrays.asList(moved));
+		int[] oldPositions = new int[dirty.length];
+		Object[] sortedMoved = new Object[dirty.length];
+		int[] sortedSources = new int[dirty.length];
+		for (int i = 0; i < order.length; i++) {
+			oldPositions[i] = dirty[order[i]];
+			sortedMoved[i] = moved[order[i]];
+			sortedSources[i] = movedSources[order[i]];
+		}
+		int[] newPositions = new int[size];
+		int[] mergedPositions = merge(dropped, sortedMoved, sortedSources, newPositions, null, null);
+		for (int i = 0; i < oldPositions.length; i++) {
+			newPositions[oldPositions[i]] = mergedPositions[i];
+		}
+		
+		int low = 0;
+		while (low < size && newPositions[low] == low) {
+			low++;
+		}
+		int high = size;
+		while (high > low && newPositions[high - 1] == high - 1) {
+			high--;
+		}
+		if (low < high) {
+			change.permutated(low, high, Arrays.copyOfRange(newPositions, low, high));
+		}
+		Arrays.sort(mergedPositions);
+		for (int position : mergedPositions) {
+			change.updated(position, position + 1);
+		}
+	}
+	
+	/**
+	 * Merges beans (sorted, with their source indexes) into the view, after
+	 * the ones they are equal to, leaving out the dropped beans.
+	 * 
+	 * @param newPositions filled with the new position of each bean that is kept
+	 * @param updated kept beans to fire an update for, if not null
+	 * @param change collects the removes, adds and updates in ascending order, if not null
+	 * @return the new position of each merged bean
+	 */
+	private int[] merge(boolean[] dropped, Object[] merged, int[] mergedSources, int[] newPositions, boolean[] updated, RecordedChange.Builder<B> change) {
+		int droppedCount = 0;
+		for (int i = 0; dropped != null && i < size; i++) {
+			droppedCount += dropped[i] ? 1 : 0;
+		}
+		int newSize = size - droppedCount + merged.length;
+		Object[] newBeans = new Object[newSize];
+		int[] newSources = new int[newSize];
+		int[] mergedPositions = new int[merged.length];
+		int i = 0;
+		int m = 0;
+		int j = 0;
+		while (i < size || m < merged.length) {
+			if (i < size && dropped != null && dropped[i]) {
+				if (change != null) {
+					change.removed(j, Collections.singletonList(get(i)));
+				}
+				i++;
+			} else if (m < merged.length && (i == size || compare(merged[m], beans[i]) < 0)) {
+				newBeans[j] = merged[m];
+				newSources[j] = mergedSources[m];
+				mergedPositions[m++] = j;
+				if (change != null) {
+					change.added(j, j + 1);
+				}
+				j++;
+			} else {
+				if (change != null && updated != null && updated[i]) {
+					change.updated(j, j + 1);
+				}
+				newBeans[j] = beans[i];
+				newSources[j] = sourceIndexes[i];
+				newPositions[i++] = j++;
+			}
+		}
+		beans = newBeans;
+		sourceIndexes = newSources;
+		size = newSize;
+		updateViewIndexes(0, size);
+		return mergedPositions;
+	}
+	
+	/**
+	 * Applies a change that adds or removes beans in one pass, so the view
+	 * fires its sub changes in ascending order however many sub changes the
+	 * source had. Updated beans that are no longer in order are moved (removed
+	 * and added), the others are updated where they are.
+	 */
+	private void restructure(ListChangeListener.Change<? extends B> c, RecordedChange.Builder<B> change) {
+		// what is at each source index as the change is replayed: a view position, or -1 - k for the kth added bean
+		List<Integer> entries = new ArrayList<Integer>(size);
+		for (int i = 0; i < size; i++) {
+			entries.add(viewIndexes[i]);
+		}
+		List<Object> added = new ArrayList<Object>();
+		List<Object> removedBeans = new ArrayList<Object>();
+		boolean[] dropped = new boolean[size];
+		boolean[] updated = new boolean[size];
+		c.reset();
+		while (c.next()) {
+			int from = c.getFrom();
+			if (c.wasPermutated()) {
+				List<Integer> permuted = new ArrayList<Integer>(entries.subList(from, c.getTo()));
+				for (int i = from; i < c.getTo(); i++) {
+					permuted.set(c.getPermutation(i) - from, entries.get(i));
+				}
+				Collections.copy(entries.subList(from, c.getTo()), permuted);
+			} else if (c.wasUpdated()) {
+				for (int i = from; i < c.getTo(); i++) {
+					if (entries.get(i) >= 0) {
+						updated[entries.get(i)] = true;
+					}
+				}
+			} else {
+				List<Integer> removed = entries.subList(from, from + c.getRemovedSize());
+				for (int entry : removed) {
+					if (entry >= 0) {
+						dropped[entry] = true;
+						removedBeans.add(beans[entry]);
+					}
+				}
+				removed.clear();
+				List<Integer> inserted = new ArrayList<Integer>();
+				for (B bean : c.getAddedSubList()) {
+					inserted.add(-1 - added.size());
+					added.add(bean);
+				}
+				entries.addAll(from, inserted);
+			}
+		}
+		
+		int[] addedSources = new int[added.size()];
+		Arrays.fill(addedSources, -1);
+		for (int i = 0; i < entries.size(); i++) {
+			int entry = entries.get(i);
+			if (entry >= 0) {
+				sourceIndexes[entry] = i;
+			} else {
+				addedSources[-1 - entry] = i;
+			}
+		}
+		// beans added and removed again by the same change are not in the source
+		List<Object> mergedBeans = new ArrayList<Object>();
+		List<Integer> mergedSources = new ArrayList<Integer>();
+		for (int k = 0; k < added.size(); k++) {
+			if (addedSources[k] >= 0) {
+				mergedBeans.add(added.get(k));
+				mergedSources.add(addedSources[k]);
+			}
+		}
+		markCopies(updated);
+		for (int position : outOfOrder(dropped, updated)) {
+			dropped[position] = true;
+			mergedBeans.add(beans[position]);
+			mergedSources.add(sourceIndexes[position]);
+		}
+		
+		// sorted by the comparator, beans that compare equal in source order
+		Integer[] bySource = new Integer[mergedBeans.size()];
+		for (int i = 0; i < bySource.length; i++) {
+			bySource[i] = i;
+		}
+		final List<Integer> sources = mergedSources;
+		Arrays.sort(bySource, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return sources.get(o1) - sources.get(o2);
+			}
+		});
+		List<Object> inSourceOrder = new ArrayList<Object>();
+		for (Integer i : bySource) {
+			inSourceOrder.add(mergedBeans.get(i));
+		}
+		Integer[] order = sortedOrder(inSourceOrder);
+		Object[] sortedMerged = new Object[order.length];
+		int[] sortedSources = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			sortedMerged[i] = inSourceOrder.get(order[i]);
+			sortedSources[i] = mergedSources.get(bySource[order[i]]);
+		}
+		merge(dropped, sortedMerged, sortedSources, new int[size], updated, change);
+		for (Object bean : removedBeans) {
+			count(bean, -1);
+		}
+		for (int k = 0; k < added.size(); k++) {
+			if (addedSources[k] >= 0) {
+				count(added.get(k), 1);
+			}
+		}
+	}
+	
+	/**
+	 * @return the positions of updated beans that are out of order with the kept beans next to them
+	 */
+	private List<Integer> outOfOrder(boolean[] dropped, boolean[] updated) {
+		// the kept beans before and after each kept bean
+		int[] previous = new int[size];
+		int[] next = new int[size];
+		int last = -1;
+		for (int i = 0; i < size; i++) {
+			if (!dropped[i]) {
+				previous[i] = last;
+				if (last >= 0) {
+					next[last] = i;
+				}
+				last = i;
+			}
+		}
+		if (last >= 0) {
+			next[last] = -1;
+		}
+		List<Integer> outOfOrder = new ArrayList<Integer>();
+		boolean[] moved = new boolean[size];
+		ArrayDeque<Integer> toCheck = new ArrayDeque<Integer>();
+		for (int i = 0; i < size; i++) {
+			if (updated[i] && !dropped[i]) {
+				toCheck.add(i);
+			}
+		}
+		while (!toCheck.isEmpty()) {
+			int position = toCheck.poll();
+			if (moved[position]) {
+				continue;
+			}
+			int before = previous[position];
+			int after = next[position];
+			if ((before >= 0 && compare(beans[before], beans[position]) > 0) || (after >= 0 && compare(beans[position], beans[after]) > 0)) {
+				moved[position] = true;
+				outOfOrder.add(position);
+				if (before >= 0) {
+					next[before] = after;
+				}
+				if (after >= 0) {
+					previous[after] = before;
+				}
+				// untouched neighbours were in order with each other, updated ones may not be any more
+				if (before >= 0 && updated[before]) {
+					toCheck.add(before);
+				}
+				if (after >= 0 && updated[after]) {
+					toCheck.add(after);
+				}
+			}
+		}
+		return outOfOrder;
+	}
+	
+	private void permute(ListChangeListener.Change<? extends B> c) {
+		for (int i = 0; i < size; i++) {
+			if (sourceIndexes[i] >= c.getFrom() && sourceIndexes[i] < c.getTo()) {
+				sourceIndexes[i] = c.getPermutation(sourceIndexes[i]);
+				viewIndexes[sourceIndexes[i]] = i;
+			}
+		}
+	}
+	
+	private class SourceListener implements ListChangeListener<B> {
+		@Override
+		public void onChanged(Change<? extends B> c) {
+			RecordedChange.Builder<B> change = new RecordedChange.Builder<B>();
+			if (isStructural(c)) {
+				restructure(c, change);
+				fire(change);
+				return;
+			}
+			// updated beans are put back in order together, so none is placed by an unsorted neighbour
+			int[] updatedSources = new int[0];
+			int updatedCount = 0;
+			while (c.next()) {
+				if (c.wasUpdated()) {
+					updatedSources = Arrays.copyOf(updatedSources, updatedCount + c.getTo() - c.getFrom());
+					for (int i = c.getFrom(); i < c.getTo(); i++) {
+						updatedSources[updatedCount++] = i;
+					}
+					continue;
+				}
+				if (updatedCount > 0) {
+					updated(updatedSources, updatedCount, change);
+					updatedCount = 0;
+				}
+				// the order of the view doesn't depend on the order of the source
+				permute(c);
+			}
+			if (updatedCount > 0) {
+				updated(updatedSources, updatedCount, change);
+			}
+			fire(change);
+		}
+		
+		private boolean isStructural(Change<? extends B> c) {
+			boolean structural = false;
+			while (c.next()) {
+				structural |= !c.wasPermutated() && !c.wasUpdated();
+			}
+			c.reset();
+			return structural;
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.artclod.javafx.swap.beans.getter.PropertyGetter;
+
+/**
+ * A {@link BeanPropertyIndex} that keeps the property values in order, so
+ * beans can also be looked up by a range of values in O(log n) (plus the
+ * size of the result). Null values sort first.
+ * 
+ * @param <K> The property value type
+ * @param <B> The bean type
+ */
+public class SortedBeanPropertyIndex<K, B> extends BeanPropertyIndex<K, B> {
+	
+	/**
+	 * Orders the values by their natural ordering, they must be Comparable.
+	 */
+	public SortedBeanPropertyIndex(BeanObservableList<B> list, PropertyGetter<?, K, B> getter) {
+		this(list, getter, null);
+	}
+	
+	public SortedBeanPropertyIndex(BeanObservableList<B> list, PropertyGetter<?, K, B> getter, Comparator<? super K> comparator) {
+		super(list, getter, new TreeMap<K, Set<B>>(nullsFirst(comparator)));
+	}
+	
+	/**
+	 * @return the beans with values in [from, to), in value order
+	 */
+	public List<B> getRange(K from, K to) {
+		return getRange(from, true, to, false);
+	}
+	
+	/**
+	 * @return the beans with values between from and to, in value order
+	 */
+	public List<B> getRange(K from, boolean fromInclusive, K to, boolean toInclusive) {
+		// a bean is only ever in one bucket so they can just be concatenated
+		List<B> beans = new ArrayList<B>();
+		for (Set<B> bucket : getBuckets().subMap(from, fromInclusive, to, toInclusive).values()) {
+			beans.addAll(bucket);
+		}
+		return beans;
+	}
+	
+	/**
+	 * @return the beans with values less than (or equal to) to, in value order
+	 */
+	public List<B> getHead(K to, boolean inclusive) {
+		List<B> beans = new ArrayList<B>();
+		for (Set<B> bucket : getBuckets().headMap(to, inclusive).values()) {
+			beans.addAll(bucket);
+		}
+		return beans;
+	}
+	
+	/**
+	 * @return the beans with values greater than (or equal to) from, in value order
+	 */
+	public List<B> getTail(K from, boolean inclusive) {
+		List<B> beans = new ArrayList<B>();
+		for (Set<B> bucket : getBuckets().tailMap(from, inclusive).values()) {
+			beans.addAll(bucket);
+		}
+		return beans;
+	}
+	
+	/**
+	 * @throws java.util.NoSuchElementException if no bean is indexed
+	 */
+	public K firstKey() {
+		return getBuckets().firstKey();
+	}
+	
+	/**
+	 * @throws java.util.NoSuchElementException if no bean is indexed
+	 */
+	public K lastKey() {
+		return getBuckets().lastKey();
+	}
+	
+	@Override
+	protected NavigableMap<K, Set<B>> getBuckets() {
+		return (NavigableMap<K, Set<B>>) super.getBuckets();
+	}
+	
+	private static <K> Comparator<K> nullsFirst(final Comparator<? super K> comparator) {
+		return new Comparator<K>() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public int compare(K o1, K o2) {
+				if (o1 == null || o2 == null) {
+					return (o1 == null ? 0 : 1) - (o2 == null ? 0 : 1);
+				}
+				return comparator == null ? ((Comparable<? super K>) o1).compareTo(o2) : comparator.compare(o1, o2);
+			}
+		};
+	}
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import javafx.beans.property.Property;
+import javafx.collections.ListChangeListener;
+
+import com.artclod.javafx.Releasable;
+import com.artclod.javafx.swap.beans.getter.Getter;
+
+/**
+ * The first beans of a {@link BeanObservableList} in the order of a comparator
+ * (see {@link BeanComparator}), e.g. the top 50 by score. The rest of the beans
+ * are kept in a binary heap that knows where each bean is, so a changed bean
+ * is sifted into place in O(log n) and only the few shown are kept sorted.
+ * The view only fires when the beans it shows change, move or are updated.
+ * Beans that compare equal are shown in the order they were added.
+ * 
+ * @param <B> The bean type
+ */
+public class TopBeanList<B> extends ReadOnlyObservableListBase<B> implements Releasable {
+	private final BeanObservableList<B> source;
+	private final List<Getter<? extends Property<?>, B>> watched;
+	private final Comparator<? super B> comparator;
+	private final int limit;
+	private final SourceListener sourceListener = new SourceListener();
+	private final List<Entry<B>> top = new ArrayList<Entry<B>>();
+	private final List<Entry<B>> heap = new ArrayList<Entry<B>>();
+	// set when updated beans may be out of place in the heap, it is rebuilt before it is read
+	private boolean heapDirty;
+	// the entry of each bean, chained for beans that are in the source more than once
+	private final IdentityHashMap<B, Entry<B>> entries = new IdentityHashMap<B, Entry<B>>();
+	private long sequence;
+	
+	/**
+	 * @param limit how many beans the view shows (at most)
+	 * @param watched getters of the properties the comparator reads, they are watched by the source until this is released
+	 */
+	@SafeVarargs
+	public TopBeanList(BeanObservableList<B> source, Comparator<? super B> comparator, int limit, Getter<? extends Property<?>, B>... watched) {
+		if (limit < 0) {
+			throw new IllegalArgumentException("limit can not be negative: " + limit);
+		}
+		this.source = source;
+		this.comparator = comparator;
+		this.limit = limit;
+		this.watched = new ArrayList<Getter<? extends Property<?>, B>>(watched.length);
+		for (Getter<? extends Property<?>, B> getter : watched) {
+			this.watched.add(getter);
+			source.addViewGetter(getter);
+		}
+		for (B bean : source) {
+			if (bean != null) {
+				Entry<B> entry = newEntry(bean);
+				entry.heapIndex = heap.size();
+				heap.add(entry);
+			}
+		}
+		heapDirty = true;
+		rebalance();
+		source.addListener(sourceListener);
+	}
+	
+	public int getLimit() {
+		return limit;
+	}
+	
+	@Override
+	public B get(int index) {
+		return top.get(index).bean;
+	}
+	
+	@Override
+	public int size() {
+		return top.size();
+	}
+	
+	@Override
+	public void release() {
+		source.removeListener(sourceListener);
+		for (Getter<? extends Property<?>, B> getter : watched) {
+			source.removeViewGetter(getter);
+		}
+	}
+	
+	private Entry<B> newEntry(B bean) {
+		Entry<B> entry = new Entry<B>(bean, sequence++);
+		entry.next = entries.put(bean, entry);
+		return entry;
+	}
+	
+	private void added(B bean) {
+		if (bean == null) {
+			return;
+		}
+		push(newEntry(bean));
+	}
+	
+	private void removed(B bean) {
+		Entry<B> first = entries.get(bean);
+		if (first == null) {
+			return;
+		}
+		// take out a copy that isn't shown if there is one
+		Entry<B> entry = first;
+		while (entry.heapIndex < 0 && entry.next != null) {
+			entry = entry.next;
+		}
+		unchain(first, entry);
+		if (entry.heapIndex >= 0) {
+			removeFromHeap(entry.heapIndex);
+		} else {
+			top.remove(entry);
+		}
+	}
+	
+	// returns true if a shown bean was updated, the heap is put back in order by the next rebalance
+	private boolean updated(B bean) {
+		boolean shown = false;
+		for (Entry<B> entry = entries.get(bean); entry != null; entry = entry.next) {
+			if (entry.heapIndex >= 0) {
+				heapDirty = true;
+			} else {
+				shown = true;
+			}
+		}
+		return shown;
+	}
+	
+	private void unchain(Entry<B> first, Entry<B> entry) {
+		if (first == entry) {
+			if (entry.next == null) {
+				entries.remove(entry.bean);
+			} else {
+				entries.put(entry.bean, entry.next);
+			}
+			return;
+		}
+		Entry<B> previous = first;
+		while (previous.next != entry) {
+			previous = previous.next;
+		}
+		previous.next = entry.next;
+	}
+	
+	// moves beans between the heap and the top until every shown bean comes before every other one
+	private void rebalance() {
+		if (heapDirty) {
+			heapify();
+		}
+		while (!heap.isEmpty() && (top.size() < limit || (limit > 0 && compare(heap.get(0), top.get(top.size() - 1)) < 0))) {
+			Entry<B> best = heap.get(0);
+			removeFromHeap(0);
+			if (top.size() == limit) {
+				push(top.remove(limit - 1));
+			}
+			int position = Collections.binarySearch(top, best, new Comparator<Entry<B>>() {
+				@Override
+				public int compare(Entry<B> o1, Entry<B> o2) {
+					return TopBeanList.this.compare(o1, o2);
+				}
+			});
+			top.add(-position - 1, best);
+		}
+	}
+	
+	private int compare(Entry<B> entry1, Entry<B> entry2) {
+		int compared = comparator.compare(entry1.bean, entry2.bean);
+		if (compared != 0) {
+			return compared;
+		}
+		return entry1.sequence < entry2.sequence ? -1 : (entry1.sequence == entry2.sequence ? 0 : 1);
+	}
+	
+	private void sortTop() {
+		Collections.sort(top, new Comparator<Entry<B>>() {
+			@Override
+			public int compare(Entry<B> o1, Entry<B> o2) {
+				return TopBeanList.this.compare(o1, o2);
+			}
+		});
+	}
+	
+	// ====== Binary heap with the best entry first ======
+	private void push(Entry<B> entry) {
+		entry.heapIndex = heap.size();
+		heap.add(entry);
+		if (!heapDirty) {
+			siftUp(entry.heapIndex);
+		}
+	}
+	
+	private void removeFromHeap(int index) {
+		Entry<B> removed = heap.get(index);
+		removed.heapIndex = -1;
+		Entry<B> last = heap.remove(heap.size() - 1);
+		if (index < heap.size()) {
+			place(last, index);
+			if (!heapDirty) {
+				siftDown(siftUp(index));
+			}
+		}
+	}
+	
+	// puts the whole heap in order at once (Floyd), for when several entries changed
+	private void heapify() {
+		for (int i = heap.size() / 2 - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+		heapDirty = false;
+	}
+	
+	private int siftUp(int index) {
+		Entry<B> entry = heap.get(index);
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (compare(entry, heap.get(parent)) >= 0) {
+				break;
+			}
+			place(heap.get(parent), index);
+			index = parent;
+		}
+		place(entry, index);
+		return index;
+	}
+	
+	private int siftDown(int index) {
+		Entry<B> entry = heap.get(index);
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= heap.size()) {
+				break;
+			}
+			if (child + 1 < heap.size() && compare(heap.get(child + 1), heap.get(child)) < 0) {
+				child++;
+			}
+			if (compare(heap.get(child), entry) >= 0) {
+				break;
+			}
+			place(heap.get(child), index);
+			index = child;
+		}
+		place(entry, index);
+		return index;
+	}
+	
+	private void place(Entry<B> entry, int index) {
+		heap.set(index, entry);
+		entry.heapIndex = index;
+	}
+	
+	// ====== Changes are worked out by comparing what was shown before and after ======
+	private void fireDifferences(List<Entry<B>> before, Set<Entry<B>> updated) {
+		RecordedChange.Builder<B> change = new RecordedChange.Builder<B>();
+		int start = 0;
+		while (start < before.size() && start < top.size() && before.get(start) == top.get(start)) {
+			start++;
+		}
+		int beforeEnd = before.size();
+		int afterEnd = top.size();
+		while (beforeEnd > start && afterEnd > start && before.get(beforeEnd - 1) == top.get(afterEnd - 1)) {
+			beforeEnd--;
+			afterEnd--;
+		}
+		for (int i = 0; i < start; i++) {
+			if (updated.contains(top.get(i))) {
+				change.updated(i, i + 1);
+			}
+		}
+		int updatedFrom = afterEnd;
+		if (start < beforeEnd || start < afterEnd) {
+			IdentityHashMap<Entry<B>, Integer> moved = new IdentityHashMap<Entry<B>, Integer>();
+			for (int i = start; i < afterEnd; i++) {
+				moved.put(top.get(i), i);
+			}
+			if (beforeEnd == afterEnd && moved.keySet().containsAll(before.subList(start, beforeEnd))) {
+				int[] permutation = new int[beforeEnd - start];
+				for (int i = start; i < beforeEnd; i++) {
+					permutation[i - start] = moved.get(before.get(i));
+				}
+				change.permutated(start, beforeEnd, permutation);
+				updatedFrom = start;
+			} else {
+				List<B> removed = new ArrayList<B>();
+				for (Entry<B> entry : before.subList(start, beforeEnd)) {
+					removed.add(entry.bean);
+				}
+				change.replaced(start, afterEnd, removed);
+			}
+		}
+		for (int i = updatedFrom; i < top.size(); i++) {
+			if (updated.contains(top.get(i))) {
+				change.updated(i, i + 1);
+			}
+		}
+		fire(change);
+	}
+	
+	private static class Entry<B> {
+		private final B bean;
+		private final long sequence;
+		private int heapIndex = -1;
+		private Entry<B> next;
+		
+		private Entry(B bean, long sequence) {
+			this.bean = bean;
+			this.sequence = sequence;
+		}
+	}
+	
+	private class SourceListener extends ListChangeListenerAdapter<B> {
+		private final Set<Entry<B>> updatedShown = Collections.newSetFromMap(new IdentityHashMap<Entry<B>, Boolean>());
+		private boolean topUpdated;
+		
+		@Override
+		public void onChanged(Change<? extends B> c) {
+			List<Entry<B>> before = new ArrayList<Entry<B>>(top);
+			updatedShown.clear();
+			topUpdated = false;
+			super.onChanged(c);
+			if (topUpdated) {
+				sortTop();
+			}
+			rebalance();
+			fireDifferences(before, updatedShown);
+		}
+		
+		@Override
+		public void updatedChange(int index, B bean) {
+			if (bean != null && updated(bean)) {
+				topUpdated = true;
+				for (Entry<B> entry = entries.get(bean); entry != null; entry = entry.next) {
+					if (entry.heapIndex < 0) {
+						updatedShown.add(entry);
+					}
+				}
+			}
+		}
+		
+		@Override
+		public void removedChange(int index, B bean) {
+			removed(bean);
+		}
+		
+		@Override
+		public void addedChange(int index, B bean) {
+			added(bean);
+		}
+	}
+}
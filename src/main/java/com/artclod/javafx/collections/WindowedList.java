@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import com.artclod.javafx.Releasable;
+
+/**
+ * A page of another list: the elements from an offset, up to a window size.
+ * Changes to the source are translated into changes to the page (changes
+ * after the page are dropped, inserts and removes before it shift elements
+ * in and out of it). Moving the page only adds and removes the elements
+ * that come in and go out of view. The work for each change is proportional
+ * to the window size, not the size of the source. A change with several sub
+ * changes is worked out once from the page it leaves.
+ * 
+ * @param <E> The element type
+ */
+public class WindowedList<E> extends ReadOnlyObservableListBase<E> implements Releasable {
+	private final ObservableList<E> source;
+	private final SourceListener sourceListener = new SourceListener();
+	private int offset;
+	private int windowSize;
+	// what the page shows, kept so removed elements can be reported
+	private List<E> shown = new ArrayList<E>();
+	private int sourceSize;
+	
+	public WindowedList(ObservableList<E> source, int offset, int windowSize) {
+		checkWindow(offset, windowSize);
+		this.source = source;
+		this.offset = offset;
+		this.windowSize = windowSize;
+		this.sourceSize = source.size();
+		for (int i = offset; i < end(sourceSize); i++) {
+			shown.add(source.get(i));
+		}
+		source.addListener(sourceListener);
+	}
+	
+	/**
+	 * Moves and/or resizes the page, firing the elements that leave and enter it.
+	 */
+	public void setWindow(int offset, int windowSize) {
+		checkWindow(offset, windowSize);
+		int[] newPositions = new int[shown.size()];
+		int newCount = Math.max(0, Math.min(offset + windowSize, sourceSize) - offset);
+		for (int i = 0; i < newPositions.length; i++) {
+			int position = this.offset + i - offset;
+			newPositions[i] = (position >= 0 && position < newCount) ? position : -1;
+		}
+		this.offset = offset;
+		this.windowSize = windowSize;
+		RecordedChange.Builder<E> change = new RecordedChange.Builder<E>();
+		translate(newPositions, newCount, source, change);
+		fire(change);
+	}
+	
+	public void setOffset(int offset) {
+		setWindow(offset, windowSize);
+	}
+	
+	public int getOffset() {
+		return offset;
+	}
+	
+	public int getWindowSize() {
+		return windowSize;
+	}
+	
+	@Override
+	public E get(int index) {
+		return shown.get(index);
+	}
+	
+	@Override
+	public int size() {
+		return shown.size();
+	}
+	
+	@Override
+	public void release() {
+		source.removeListener(sourceListener);
+	}
+	
+	private static void checkWindow(int offset, int windowSize) {
+		if (offset < 0 || windowSize < 0) {
+			throw new IllegalArgumentException("Invalid window: offset " + offset + ", size " + windowSize);
+		}
+	}
+	
+	private int end(int ofSourceSize) {
+		return Math.min(offset + windowSize, ofSourceSize);
+	}
+	
+	/**
+	 * Walks the old and new page together, firing a remove for each shown
+	 * element that isn't shown anymore and an add for each new one.
+	 * 
+	 * @param newPositions the new position of each shown element, -1 if it is gone
+	 * @param list where to read the elements that come into view
+	 */
+	private void translate(int[] newPositions, int newCount, List<? extends E> list, RecordedChange.Builder<E> change) {
+		List<E> newShown = new ArrayList<E>(newCount);
+		int i = 0;
+		int j = 0;
+		while (i < newPositions.length || j < newCount) {
+			if (i < newPositions.length && newPositions[i] < 0) {
+				change.removed(j, Collections.singletonList(shown.get(i++)));
+			} else if (j < newCount && (i == newPositions.length || newPositions[i] != j)) {
+				newShown.add(list.get(offset + j));
+				change.added(j, j + 1);
+				j++;
+			} else {
+				newShown.add(shown.get(i++));
+				j++;
+			}
+		}
+		shown = newShown;
+	}
+	
+	private void replace(ListChangeListener.Change<? extends E> c, RecordedChange.Builder<E> change) {
+		int from = c.getFrom();
+		int removedTo = from + c.getRemovedSize();
+		int shift = c.getAddedSize() - c.getRemovedSize();
+		int newSourceSize = sourceSize + shift;
+		if (from < offset + windowSize) {
+			int[] newPositions = new int[shown.size()];
+			int newCount = Math.max(0, end(newSourceSize) - offset);
+			for (int i = 0; i < newPositions.length; i++) {
+				int index = offset + i;
+				int newIndex = (index < from) ? index : (index < removedTo ? -1 : index + shift);
+				int position = newIndex - offset;
+				newPositions[i] = (newIndex >= 0 && position >= 0 && position < newCount) ? position : -1;
+			}
+			translate(newPositions, newCount, c.getList(), change);
+		}
+		sourceSize = newSourceSize;
+	}
+	
+	private void permute(ListChangeListener.Change<? extends E> c, RecordedChange.Builder<E> change) {
+		int from = Math.max(c.getFrom(), offset);
+		int to = Math.min(c.getTo(), end(sourceSize));
+		if (from >= to) {
+			return;
+		}
+		int[] permutation = new int[to - from];
+		boolean staysInView = true;
+		for (int i = from; i < to; i++) {
+			permutation[i - from] = c.getPermutation(i) - offset;
+			staysInView &= c.getPermutation(i) >= from && c.getPermutation(i) < to;
+		}
+		if (staysInView) {
+			List<E> moved = new ArrayList<E>(shown.subList(from - offset, to - offset));
+			for (int i = 0; i < permutation.length; i++) {
+				shown.set(permutation[i], moved.get(i));
+			}
+			change.permutated(from - offset, to - offset, permutation);
+		} else {
+			// elements swapped with ones outside the page, so the affected part of the page is replaced
+			List<E> removed = new ArrayList<E>(shown.subList(from - offset, to - offset));
+			for (int i = from; i < to; i++) {
+				shown.set(i - offset, c.getList().get(i));
+			}
+			change.replaced(from - offset, to - offset, removed);
+		}
+	}
+	
+	/**
+	 * Shows the page of the source as it is after a change with several sub
+	 * changes, whose coordinates only hold part way through it, and fires the
+	 * difference from what was shown.
+	 */
+	private void refresh(ListChangeListener.Change<? extends E> c) {
+		Set<Object> updated = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		c.reset();
+		while (c.next()) {
+			// only the updated elements that can be on the page are kept
+			int from = Math.max(c.getFrom(), offset);
+			int to = Math.min(c.getTo(), end(c.getList().size()));
+			if (c.wasUpdated() && from < to) {
+				updated.addAll(c.getList().subList(from, to));
+			}
+		}
+		Object[] before = shown.toArray();
+		sourceSize = source.size();
+		shown = new ArrayList<E>(source.subList(Math.min(offset, sourceSize), end(sourceSize)));
+		RecordedChange<E> change = RecordedChange.diff(this, before, updated);
+		if (change.next()) {
+			change.reset();
+			fire(change);
+		}
+	}
+	
+	private class SourceListener implements ListChangeListener<E> {
+		@Override
+		public void onChanged(Change<? extends E> c) {
+			if (c.next() && c.next()) {
+				refresh(c);
+				return;
+			}
+			c.reset();
+			RecordedChange.Builder<E> change = new RecordedChange.Builder<E>();
+			while (c.next()) {
+				if (c.wasPermutated()) {
+					permute(c, change);
+				} else if (c.wasUpdated()) {
+					int from = Math.max(c.getFrom(), offset);
+					int to = Math.min(c.getTo(), end(sourceSize));
+					if (from < to) {
+						change.updated(from - offset, to - offset);
+					}
+				} else {
+					replace(c, change);
+				}
+			}
+			fire(change);
+		}
+	}
+}
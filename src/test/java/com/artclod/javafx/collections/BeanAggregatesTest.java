@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+
+import org.junit.Test;
+
+public class BeanAggregatesTest {
+	private final Person ann = new Person("ann", 30);
+	private final Person bob = new Person("bob", 10);
+	private final Person cid = new Person("cid", 50);
+	
+	@Test
+	public void aggregates_are_computed_for_the_beans_in_the_list() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, bob, cid));
+		
+		BeanAggregates<Person> ages = new BeanAggregates<Person>(list, Person.AGE);
+		
+		assertEquals(3, ages.getCount());
+		assertEquals(90.0, ages.getSum());
+		assertEquals(30.0, ages.getAverage());
+		assertEquals(10.0, ages.getMin());
+		assertEquals(50.0, ages.getMax());
+	}
+	
+	@Test
+	public void aggregates_follow_adds_removes_and_property_changes() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, bob));
+		BeanAggregates<Person> ages = new BeanAggregates<Person>(list, Person.AGE);
+		
+		list.add(cid);
+		list.remove(bob);
+		ann.age.set(70);
+		
+		assertEquals(2, ages.getCount());
+		assertEquals(120.0, ages.sumProperty().get());
+		assertEquals(60.0, ages.averageProperty().get());
+		assertEquals(50.0, ages.minProperty().get());
+		assertEquals(70.0, ages.maxProperty().get());
+	}
+	
+	@Test
+	public void beans_in_the_list_twice_are_counted_twice() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, ann, bob));
+		BeanAggregates<Person> ages = new BeanAggregates<Person>(list, Person.AGE);
+		
+		ann.age.set(20);
+		list.remove(0);
+		
+		assertEquals(2, ages.getCount());
+		assertEquals(30.0, ages.getSum());
+		assertEquals(20.0, ages.getMax());
+	}
+	
+	@Test
+	public void min_max_and_average_are_not_a_number_when_the_list_is_empty() {
+		BeanObservableList<Person> list = BeanObservableList.create(Collections.<Person> emptyList());
+		BeanAggregates<Person> scores = new BeanAggregates<Person>(list, Person.SCORE);
+		
+		list.add(ann);
+		ann.score.set(2.5);
+		assertEquals(2.5, scores.getMax());
+		list.clear();
+		
+		assertEquals(0.0, scores.getSum());
+		assertTrue(Double.isNaN(scores.getAverage()));
+		assertTrue(Double.isNaN(scores.getMin()));
+		assertTrue(Double.isNaN(scores.getMax()));
+	}
+	
+	@Test
+	public void a_property_change_sets_each_aggregate_once() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, bob));
+		BeanAggregates<Person> ages = new BeanAggregates<Person>(list, Person.AGE);
+		final List<Number> seen = new ArrayList<Number>();
+		ChangeListener<Number> recorder = new ChangeListener<Number>() {
+			@Override
+			public void changed(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
+				seen.add(newValue);
+			}
+		};
+		ages.countProperty().addListener(recorder);
+		ages.sumProperty().addListener(recorder);
+		ages.maxProperty().addListener(recorder);
+		
+		ann.age.set(40);
+		
+		assertEquals(asList((Number) 50.0, 40.0), seen);
+	}
+	
+	@Test
+	public void a_bean_updated_and_moved_in_one_batch_is_counted_with_its_new_value() {
+		List<Person> people = new ArrayList<Person>();
+		for (int age : new int[] { 8, 8, 3, 7, 8, 1, 4, 8 }) {
+			people.add(new Person("p" + people.size(), age));
+		}
+		BeanObservableList<Person> list = BeanObservableList.create(people);
+		BeanAggregates<Person> ages = new BeanAggregates<Person>(list, Person.AGE);
+		
+		list.beginChange();
+		people.get(2).age.set(5);
+		FXCollections.sort(list, BeanComparator.by(Person.AGE));
+		list.endChange();
+		
+		assertEquals(49.0, ages.getSum());
+		assertEquals(1.0, ages.getMin());
+		list.beginChange();
+		people.get(2).age.set(0);
+		FXCollections.sort(list, BeanComparator.by(Person.AGE));
+		list.endChange();
+		assertEquals(44.0, ages.getSum());
+		assertEquals(0.0, ages.getMin());
+	}
+	
+	@Test
+	public void released_aggregates_stop_watching_the_getter() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, bob));
+		BeanAggregates<Person> ages = new BeanAggregates<Person>(list, Person.AGE);
+		
+		ages.release();
+		
+		assertTrue(list.getWatchedGetters().isEmpty());
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+
+import org.junit.Test;
+
+public class BeanDistinctValuesTest {
+	private final Person ann = new Person("ann", 30);
+	private final Person bob = new Person("bob", 10);
+	private final Person cid = new Person("cid", 30);
+	
+	@Test
+	public void values_are_sorted_and_counted() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, bob, cid));
+		
+		BeanDistinctValues<Number, Person> ages = new BeanDistinctValues<Number, Person>(list, Person.AGE);
+		
+		assertEquals(asList(10, 30), ages.getValues());
+		assertEquals(2, ages.getCount(30));
+		assertEquals(0, ages.getCount(20));
+	}
+	
+	@Test
+	public void values_only_change_when_a_value_appears_or_disappears() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, bob, cid));
+		BeanDistinctValues<Number, Person> ages = new BeanDistinctValues<Number, Person>(list, Person.AGE);
+		ChangeRecorder<Number> recorder = new ChangeRecorder<Number>();
+		ages.getValues().addListener(recorder);
+		
+		ann.age.set(10);
+		list.add(new Person("dan", 10));
+		cid.age.set(20);
+		list.remove(bob);
+		
+		assertEquals(asList("removed[1,1)[30]", "added[1,2)"), recorder.changes);
+		assertEquals(asList(10, 20), ages.getValues());
+		assertEquals(2, ages.getCount(10));
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void the_values_and_counts_handed_out_are_shared_and_read_only() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, bob, cid));
+		BeanDistinctValues<Number, Person> ages = new BeanDistinctValues<Number, Person>(list, Person.AGE);
+		
+		assertSame(ages.getValues(), ages.getValues());
+		assertSame(ages.getCounts(), ages.getCounts());
+		ages.getCounts().put(20, 1);
+	}
+}
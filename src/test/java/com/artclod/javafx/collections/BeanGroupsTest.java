@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.collections.MapChangeListener;
+
+import org.junit.Test;
+
+import com.artclod.javafx.swap.beans.getter.Getter;
+
+public class BeanGroupsTest {
+	private static final Getter<String, String> INITIAL = new Getter<String, String>() {
+		@Override
+		public String get(String name) {
+			return name.substring(0, 1);
+		}
+	};
+	
+	private final Person ann = new Person("ann", 30);
+	private final Person amy = new Person("amy", 10);
+	private final Person bob = new Person("bob", 50);
+	
+	@Test
+	public void beans_are_grouped_by_their_key() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, amy, bob));
+		
+		BeanGroups<String, Person> byInitial = new BeanGroups<String, Person>(list, Person.NAME, INITIAL);
+		
+		assertEquals(asList(ann, amy), byInitial.getGroup("a"));
+		assertEquals(asList(bob), byInitial.getGroup("b"));
+		assertEquals(2, byInitial.getCount("a"));
+		assertEquals(0, byInitial.getCount("c"));
+	}
+	
+	@Test
+	public void a_bean_whose_key_changes_moves_to_its_new_group() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, amy, bob));
+		BeanGroups<Boolean, Person> byFictional = new BeanGroups<Boolean, Person>(list, Person.FICTIONAL);
+		ChangeRecorder<Person> fictional = new ChangeRecorder<Person>();
+		ChangeRecorder<Person> real = new ChangeRecorder<Person>();
+		byFictional.getGroup(false).addListener(real);
+		
+		amy.fictional.set(true);
+		byFictional.getGroup(true).addListener(fictional);
+		ann.fictional.set(true);
+		
+		assertEquals(asList("removed[1,1)[amy]", "removed[0,0)[ann]"), real.changes);
+		assertEquals(asList("added[1,2)"), fictional.changes);
+		assertEquals(asList(amy, ann), byFictional.getGroup(true));
+	}
+	
+	@Test
+	public void groups_are_added_and_removed_with_their_first_and_last_bean() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, amy));
+		BeanGroups<String, Person> byInitial = new BeanGroups<String, Person>(list, Person.NAME, INITIAL);
+		final List<String> events = new ArrayList<String>();
+		byInitial.getGroups().addListener(new MapChangeListener<String, Object>() {
+			@Override
+			public void onChanged(Change<? extends String, ? extends Object> change) {
+				events.add((change.wasAdded() ? "added " : "removed ") + change.getKey());
+			}
+		});
+		
+		list.add(bob);
+		ann.name.set("cat");
+		amy.name.set("cid");
+		list.remove(bob);
+		
+		assertEquals(asList("added b", "added c", "removed a", "removed b"), events);
+		assertEquals(asList(ann, amy), byInitial.getGroup("c"));
+		assertFalse(byInitial.getGroups().containsKey("a"));
+	}
+	
+	@Test
+	public void beans_leave_a_large_group_from_where_they_are() {
+		List<Person> people = new ArrayList<Person>();
+		for (int i = 0; i < 3000; i++) {
+			people.add(new Person("a" + i, i));
+		}
+		people.add(1500, bob);
+		people.add(bob);
+		BeanObservableList<Person> list = BeanObservableList.create(people);
+		BeanGroups<String, Person> byInitial = new BeanGroups<String, Person>(list, Person.NAME, INITIAL);
+		List<Person> replayed = new ObservableListMirror<Person, Person>(new ObservableListMirror.MirrorFactory<Person, Person>() {
+			@Override
+			public Person create(Person original) {
+				return original;
+			}
+			
+			@Override
+			public void finished(Person mirror) {
+			}
+		}, byInitial.getGroup("a"));
+		
+		bob.name.set("abe");
+		list.get(10).name.set("cid");
+		list.remove(bob);
+		
+		List<Person> expected = new ArrayList<Person>(people.subList(0, 10));
+		expected.addAll(people.subList(11, 1500));
+		expected.addAll(people.subList(1501, 3001));
+		expected.add(bob);
+		assertEquals(expected, byInitial.getGroup("a"));
+		assertEquals(expected, replayed);
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javafx.beans.property.SimpleIntegerProperty;
+
+import org.junit.Test;
+
+public class BeanIngestionQueueTest {
+	private final Person ann = new Person("ann", 30);
+	private final Person bob = new Person("bob", 10);
+	private final Person cid = new Person("cid", 20);
+	private final BlockingQueue<Runnable> runs = new LinkedBlockingQueue<Runnable>();
+	private final Executor executor = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			runs.add(command);
+		}
+	};
+	
+	@Test
+	public void runs_of_adds_and_removes_are_one_change_each() throws InterruptedException {
+		BeanObservableList<Person> list = BeanObservableList.create(new ArrayList<Person>(asList(ann)));
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		list.addListener(recorder);
+		BeanIngestionQueue<Person> ingestion = new BeanIngestionQueue<Person>(list, executor, 10, 1000);
+		
+		ingestion.add(bob);
+		ingestion.add(cid);
+		ingestion.remove(ann);
+		ingestion.remove(bob);
+		assertEquals(4, ingestion.getPending());
+		assertEquals(1, runs.size());
+		runs.take().run();
+		
+		assertEquals(asList("added[1,3)", "removed[0,0)[" + ann + ", " + bob + "]"), recorder.changes);
+		assertEquals(asList(cid), list);
+		assertEquals(0, ingestion.getPending());
+		assertTrue(runs.isEmpty());
+	}
+	
+	@Test
+	public void operations_are_applied_in_order() throws InterruptedException {
+		BeanObservableList<Person> list = BeanObservableList.create(new ArrayList<Person>(), Person.AGE);
+		BeanIngestionQueue<Person> ingestion = new BeanIngestionQueue<Person>(list, executor, 10, 1000);
+		
+		ingestion.add(ann);
+		ingestion.set(ann, Person.AGE, 31);
+		ingestion.remove(ann);
+		ingestion.add(ann);
+		ingestion.set(ann, Person.NAME, "anne");
+		runs.take().run();
+		
+		assertEquals(asList(ann), list);
+		assertEquals(31, ann.age.get());
+		assertEquals("anne", ann.name.get());
+	}
+	
+	@Test
+	public void a_full_slice_leaves_the_rest_for_the_next_run() throws InterruptedException {
+		BeanObservableList<Person> list = BeanObservableList.create(new ArrayList<Person>());
+		BeanIngestionQueue<Person> ingestion = new BeanIngestionQueue<Person>(list, executor, 10, 0);
+		
+		ingestion.add(ann);
+		ingestion.add(bob);
+		runs.take().run();
+		
+		assertEquals(asList(ann), list);
+		assertEquals(1, runs.size());
+		runs.take().run();
+		assertEquals(asList(ann, bob), list);
+	}
+	
+	@Test
+	public void a_failed_write_is_reported_and_the_rest_are_applied() throws InterruptedException {
+		BeanObservableList<Person> list = BeanObservableList.create(new ArrayList<Person>());
+		BeanIngestionQueue<Person> ingestion = new BeanIngestionQueue<Person>(list, executor, 10, 1000);
+		final List<Throwable> reported = new ArrayList<Throwable>();
+		Thread.UncaughtExceptionHandler handler = Thread.currentThread().getUncaughtExceptionHandler();
+		Thread.currentThread().setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(Thread t, Throwable e) {
+				reported.add(e);
+			}
+		});
+		// a bound property can not be set
+		ann.age.bind(new SimpleIntegerProperty(30));
+		try {
+			ingestion.add(ann);
+			ingestion.set(ann, Person.AGE, 31);
+			ingestion.add(bob);
+			runs.take().run();
+		} finally {
+			Thread.currentThread().setUncaughtExceptionHandler(handler);
+		}
+		
+		assertEquals(1, reported.size());
+		assertEquals(asList(ann, bob), list);
+		assertEquals(0, ingestion.getPending());
+		ingestion.add(cid);
+		assertEquals(1, runs.size());
+		runs.take().run();
+		assertEquals(asList(ann, bob, cid), list);
+	}
+	
+	@Test
+	public void producers_wait_when_the_queue_is_full() throws InterruptedException {
+		BeanObservableList<Person> list = BeanObservableList.create(new ArrayList<Person>());
+		final BeanIngestionQueue<Person> ingestion = new BeanIngestionQueue<Person>(list, executor, 1, 1000);
+		final CountDownLatch done = new CountDownLatch(1);
+		
+		ingestion.add(ann);
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					ingestion.add(bob);
+					done.countDown();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}.start();
+		
+		assertEquals(false, done.await(100, TimeUnit.MILLISECONDS));
+		runs.take().run();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		// bob may have been drained by the first run
+		for (Runnable run = runs.poll(); run != null; run = runs.poll()) {
+			run.run();
+		}
+		assertEquals(asList(ann, bob), list);
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BeanJoinTest {
+	private final Person ann = new Person("ann", 30);
+	private final Person bob = new Person("bob", 40);
+	private final Person annOrder = new Person("ann", 1);
+	private final Person annOrder2 = new Person("ann", 2);
+	private final Person bobOrder = new Person("bob", 3);
+	
+	@Test
+	public void beans_with_equal_keys_are_joined() {
+		BeanObservableList<Person> people = BeanObservableList.create(asList(ann, bob));
+		BeanObservableList<Person> orders = BeanObservableList.create(asList(annOrder, bobOrder, annOrder2));
+		
+		BeanJoin<String, Person, Person> join = new BeanJoin<String, Person, Person>(people, Person.NAME, orders, Person.NAME);
+		
+		assertEquals(asList("ann - ann", "bob - bob", "ann - ann"), rows(join));
+		assertEquals(annOrder2, join.get(2).getRight());
+	}
+	
+	@Test
+	public void adds_and_removes_only_change_the_rows_of_their_bean() {
+		BeanObservableList<Person> people = BeanObservableList.create(asList(ann));
+		BeanObservableList<Person> orders = BeanObservableList.create(asList(annOrder, bobOrder));
+		BeanJoin<String, Person, Person> join = new BeanJoin<String, Person, Person>(people, Person.NAME, orders, Person.NAME);
+		ChangeRecorder<BeanJoin.Row<Person, Person>> recorder = new ChangeRecorder<BeanJoin.Row<Person, Person>>();
+		join.addListener(recorder);
+		
+		people.add(bob);
+		orders.add(annOrder2);
+		orders.remove(annOrder);
+		
+		assertEquals(asList("added[1,2)", "added[2,3)", "removed[0,0)[ann - ann]"), recorder.changes);
+		assertEquals(3, recorder.count);
+	}
+	
+	@Test
+	public void a_key_change_moves_the_bean_to_its_new_matches() {
+		BeanObservableList<Person> people = BeanObservableList.create(asList(ann, bob));
+		BeanObservableList<Person> orders = BeanObservableList.create(asList(annOrder, bobOrder, annOrder2));
+		BeanJoin<String, Person, Person> join = new BeanJoin<String, Person, Person>(people, Person.NAME, orders, Person.NAME);
+		
+		ann.name.set("bob");
+		
+		assertEquals(asList(bob, ann), asList(join.get(0).getLeft(), join.get(1).getLeft()));
+		assertEquals(asList(bobOrder, bobOrder), asList(join.get(0).getRight(), join.get(1).getRight()));
+		
+		annOrder.name.set("bob");
+		
+		assertEquals(4, join.size());
+	}
+	
+	@Test
+	public void removes_from_one_change_fire_in_ascending_order() {
+		Person cid = new Person("cid", 50);
+		Person cidOrder = new Person("cid", 4);
+		BeanObservableList<Person> people = BeanObservableList.create(asList(ann, bob, cid));
+		BeanObservableList<Person> orders = BeanObservableList.create(asList(annOrder, cidOrder));
+		BeanJoin<String, Person, Person> join = new BeanJoin<String, Person, Person>(people, Person.NAME, orders, Person.NAME);
+		// the row of bob is added at the end, its order at the start
+		orders.add(0, bobOrder);
+		List<BeanJoin.Row<Person, Person>> replayed = replay(join);
+		ChangeRecorder<BeanJoin.Row<Person, Person>> recorder = new ChangeRecorder<BeanJoin.Row<Person, Person>>();
+		join.addListener(recorder);
+		
+		orders.removeAll(asList(bobOrder, cidOrder));
+		
+		assertEquals(asList("removed[1,1)[cid - cid, bob - bob]"), recorder.changes);
+		assertEquals(asList("ann - ann"), rows(join));
+		assertEquals(join, replayed);
+	}
+	
+	@Test
+	public void rows_added_one_at_a_time_past_several_chunks_stay_in_order() {
+		BeanObservableList<Person> people = BeanObservableList.create(asList(ann));
+		BeanObservableList<Person> orders = BeanObservableList.create(new ArrayList<Person>());
+		BeanJoin<String, Person, Person> join = new BeanJoin<String, Person, Person>(people, Person.NAME, orders, Person.NAME);
+		List<BeanJoin.Row<Person, Person>> replayed = replay(join);
+		
+		List<Person> added = new ArrayList<Person>();
+		for (int i = 0; i < 2500; i++) {
+			Person order = new Person("ann", i);
+			added.add(order);
+			orders.add(order);
+		}
+		people.add(0, bob);
+		orders.add(0, bobOrder);
+		
+		assertEquals(2501, join.size());
+		for (int i = 0; i < added.size(); i++) {
+			assertEquals(added.get(i), join.get(i).getRight());
+		}
+		assertEquals(bobOrder, join.get(2500).getRight());
+		assertEquals(join, replayed);
+	}
+	
+	private static List<BeanJoin.Row<Person, Person>> replay(BeanJoin<String, Person, Person> join) {
+		return new ObservableListMirror<BeanJoin.Row<Person, Person>, BeanJoin.Row<Person, Person>>(new ObservableListMirror.MirrorFactory<BeanJoin.Row<Person, Person>, BeanJoin.Row<Person, Person>>() {
+			@Override
+			public BeanJoin.Row<Person, Person> create(BeanJoin.Row<Person, Person> original) {
+				return original;
+			}
+			
+			@Override
+			public void finished(BeanJoin.Row<Person, Person> mirror) {
+			}
+		}, join);
+	}
+	
+	private static List<String> rows(BeanJoin<String, Person, Person> join) {
+		List<String> rows = new ArrayList<String>();
+		for (BeanJoin.Row<Person, Person> row : join) {
+			rows.add(row.toString());
+		}
+		return rows;
+	}
+}
@@ -25,6 +25,12 @@
 
 package com.artclod.javafx.collections;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.assertSame;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.atMost;
@@ -32,16 +38,28 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.binding.IntegerBinding;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
-import javafx.beans.value.ChangeListener;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ListChangeListener.Change;
+import javafx.collections.ObservableList;
 
 import org.junit.Test;
 
 import com.artclod.javafx.collections.BeanObservableList;
+import com.artclod.javafx.swap.beans.getter.IntegerPropertyGetter;
 import com.artclod.javafx.swap.beans.getter.StringPropertyGetter;
 
 @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -56,11 +74,40 @@ public class BeanObservableListTest {
 		when(testBean.getSecond()).thenReturn(second);
 		
 		BeanObservableList<TestBean> list = BeanObservableList.create(TestBean.FIRST);
+		list.addListener(mock(ListChangeListener.class));
 		list.add(testBean);
 		
-		verify(first).addListener(any(ChangeListener.class));
+		verify(first).addListener(any(InvalidationListener.class));
 		verifyZeroInteractions(second);
 	}
+	
+	@Test
+	public void beans_are_not_listened_to_while_the_list_has_no_listeners() {
+		TestBean testBean = mock(TestBean.class);
+		StringProperty first = mock(StringProperty.class);
+		when(testBean.getFirst()).thenReturn(first);
+		
+		BeanObservableList<TestBean> list = BeanObservableList.create(TestBean.FIRST);
+		list.add(testBean);
+		
+		verifyZeroInteractions(first);
+	}
+	
+	@Test
+	public void beans_are_listened_to_once_the_list_has_a_listener_and_released_when_it_is_removed() {
+		TestBean testBean = mock(TestBean.class);
+		StringProperty first = mock(StringProperty.class);
+		when(testBean.getFirst()).thenReturn(first);
+		
+		BeanObservableList<TestBean> list = BeanObservableList.create(TestBean.FIRST);
+		list.add(testBean);
+		InvalidationListener listener = mock(InvalidationListener.class);
+		list.addListener(listener);
+		verify(first).addListener(any(InvalidationListener.class));
+		
+		list.removeListener(listener);
+		verify(first).removeListener(any(InvalidationListener.class));
+	}
 
 	@Test
 	public void list_fires_event_if_bean_updates() {
@@ -89,11 +136,12 @@ public class BeanObservableListTest {
 		when(testBean.getSecond()).thenReturn(second);
 		
 		BeanObservableList<TestBean> list = BeanObservableList.create(TestBean.FIRST);
+		list.addListener(mock(ListChangeListener.class));
 		list.add(testBean);
 		list.remove(testBean);
 		
-		verify(first).addListener(any(ChangeListener.class));
-		verify(first).removeListener(any(ChangeListener.class));
+		verify(first).addListener(any(InvalidationListener.class));
+		verify(first).removeListener(any(InvalidationListener.class));
 		verifyZeroInteractions(second);
 	}
 	
@@ -154,7 +202,671 @@ public class BeanObservableListTest {
 		verify(mock, atMost(0)).onChanged(any(Change.class));
 	}
 	
+	@Test
+	public void bean_update_fires_a_single_update_for_that_beans_index() {
+		TestBean testBean1 = new TestBean("1", "1");
+		TestBean testBean2 = new TestBean("2", "2");
+		BeanObservableList<TestBean> list = BeanObservableList.create(TestBean.FIRST, TestBean.SECOND);
+		list.addAll(testBean1, testBean2);
+		ChangeRecorder<TestBean> recorder = new ChangeRecorder<TestBean>();
+		list.addListener(recorder);
+
+		testBean2.getSecond().set("c");
+
+		assertEquals(asList("updated[1,2)"), recorder.changes);
+	}
+	
+	@Test
+	public void bean_update_index_follows_inserts_before_the_bean() {
+		TestBean testBean1 = new TestBean("1", "1");
+		TestBean testBean2 = new TestBean("2", "2");
+		TestBean testBean3 = new TestBean("3", "3");
+		BeanObservableList<TestBean> list = BeanObservableList.create(TestBean.FIRST, TestBean.SECOND);
+		list.addAll(testBean1, testBean2);
+		list.add(0, testBean3);
+		ChangeRecorder<TestBean> recorder = new ChangeRecorder<TestBean>();
+		list.addListener(recorder);
+
+		testBean2.getFirst().set("c");
+		list.remove(testBean3);
+		testBean2.getFirst().set("d");
+
+		assertEquals(asList("updated[2,3)", "removed[0,0)[" + testBean3 + "]", "updated[1,2)"), recorder.changes);
+	}
+	
+	@Test
+	public void bean_update_index_follows_sorting() {
+		TestBean testBean2 = new TestBean("2", "2");
+		TestBean testBean1 = new TestBean("1", "1");
+		BeanObservableList<TestBean> list = BeanObservableList.create(TestBean.FIRST, TestBean.SECOND);
+		list.addAll(testBean2, testBean1);
+		FXCollections.sort(list);
+		ChangeRecorder<TestBean> recorder = new ChangeRecorder<TestBean>();
+		list.addListener(recorder);
+
+		testBean2.getSecond().set("c");
+
+		assertEquals(asList("updated[1,2)"), recorder.changes);
+	}
+	
+	@Test
+	public void changes_are_reported_with_the_bean_list_as_their_source() {
+		BeanObservableList<TestBean> list = BeanObservableList.create(TestBean.FIRST, TestBean.SECOND);
+		ChangeRecorder<TestBean> recorder = new ChangeRecorder<TestBean>();
+		list.addListener(recorder);
+
+		list.add(new TestBean("1", "1"));
+
+		assertSame(list, recorder.source);
+	}
+	
+	@Test
+	public void coalesced_updates_are_fired_once_as_contiguous_ranges_when_flushed() {
+		List<TestBean> beans = new ArrayList<TestBean>();
+		for (int i = 0; i < 5; i++) {
+			beans.add(new TestBean("" + i, "" + i));
+		}
+		BeanObservableList<TestBean> list = BeanObservableList.create(beans, TestBean.FIRST, TestBean.SECOND);
+		QueueExecutor executor = new QueueExecutor();
+		list.coalesceUpdates(executor);
+		ChangeRecorder<TestBean> recorder = new ChangeRecorder<TestBean>();
+		list.addListener(recorder);
+
+		beans.get(4).getFirst().set("a");
+		beans.get(0).getFirst().set("b");
+		beans.get(1).getSecond().set("c");
+		beans.get(0).getSecond().set("d");
+		assertEquals(0, recorder.changes.size());
+
+		executor.runAll();
+
+		assertEquals(asList("updated[0,2)", "updated[4,5)"), recorder.changes);
+		assertEquals(1, recorder.count);
+	}
+	
+	@Test
+	public void coalesced_updates_of_removed_beans_are_not_fired() {
+		TestBean testBean1 = new TestBean("1", "1");
+		TestBean testBean2 = new TestBean("2", "2");
+		BeanObservableList<TestBean> list = BeanObservableList.create(TestBean.FIRST, TestBean.SECOND);
+		list.addAll(testBean1, testBean2);
+		QueueExecutor executor = new QueueExecutor();
+		list.coalesceUpdates(executor);
+		ChangeRecorder<TestBean> recorder = new ChangeRecorder<TestBean>();
+		list.addListener(recorder);
+
+		testBean1.getFirst().set("c");
+		testBean2.getFirst().set("d");
+		list.remove(testBean1);
+		executor.runAll();
+
+		assertEquals(asList("removed[0,0)[" + testBean1 + "]", "updated[0,1)"), recorder.changes);
+	}
+	
+	@Test
+	public void identity_index_finds_beans_after_inserts_and_removes() {
+		TestBean testBean1 = new TestBean("1", "1");
+		TestBean testBean2 = new TestBean("2", "2");
+		TestBean testBean3 = new TestBean("3", "3");
+		BeanObservableList<TestBean> list = BeanObservableList.create(TestBean.FIRST, TestBean.SECOND);
+		list.setIdentityIndexed(true);
+		list.addAll(testBean1, testBean2);
+		list.add(0, testBean3);
+
+		assertEquals(2, list.indexOf(testBean2));
+		assertTrue(list.contains(testBean1));
+		
+		assertTrue(list.remove(testBean3));
+		assertFalse(list.contains(testBean3));
+		assertFalse(list.remove(testBean3));
+		assertEquals(-1, list.indexOf(testBean3));
+		assertEquals(1, list.indexOf(testBean2));
+	}
+	
+	@Test
+	public void identity_index_follows_sorting() {
+		TestBean testBean2 = new TestBean("2", "2");
+		TestBean testBean1 = new TestBean("1", "1");
+		BeanObservableList<TestBean> list = BeanObservableList.create(asList(testBean2, testBean1), TestBean.FIRST, TestBean.SECOND);
+		list.setIdentityIndexed(true);
+
+		FXCollections.sort(list);
+
+		assertEquals(0, list.indexOf(testBean1));
+		assertEquals(1, list.indexOf(testBean2));
+	}
+	
+	@Test
+	public void identity_index_handles_duplicate_beans() {
+		TestBean testBean1 = new TestBean("1", "1");
+		TestBean testBean2 = new TestBean("2", "2");
+		BeanObservableList<TestBean> list = BeanObservableList.create(asList(testBean1, testBean2, testBean1), TestBean.FIRST, TestBean.SECOND);
+		list.setIdentityIndexed(true);
+
+		assertEquals(0, list.indexOf(testBean1));
+		assertEquals(2, list.lastIndexOf(testBean1));
+		
+		list.remove(testBean1);
+		assertEquals(1, list.indexOf(testBean1));
+		assertEquals(1, list.lastIndexOf(testBean1));
+		
+		list.remove(testBean1);
+		assertFalse(list.contains(testBean1));
+	}
+	
+	@Test
+	public void identity_index_survives_listeners_coming_and_going() {
+		TestBean testBean1 = new TestBean("1", "1");
+		TestBean testBean2 = new TestBean("2", "2");
+		BeanObservableList<TestBean> list = BeanObservableList.create(asList(testBean1), TestBean.FIRST, TestBean.SECOND);
+		ListChangeListener listener = mock(ListChangeListener.class);
+		list.addListener(listener);
+		list.setIdentityIndexed(true);
+		list.removeListener(listener);
+		list.add(0, testBean2);
+		list.addListener(listener);
+
+		assertEquals(1, list.indexOf(testBean1));
+		assertEquals(0, list.indexOf(testBean2));
+	}
+	
+	@Test
+	public void bound_properties_are_not_evaluated_for_every_invalidation_when_coalescing() {
+		IntegerProperty source = new SimpleIntegerProperty(0);
+		CountingBinding binding = new CountingBinding(source);
+		NumberBean bean = new NumberBean();
+		bean.number.bind(binding);
+		BeanObservableList<NumberBean> list = BeanObservableList.create(asList(bean), NumberBean.NUMBER);
+		QueueExecutor executor = new QueueExecutor();
+		list.coalesceUpdates(executor);
+		ChangeRecorder<NumberBean> recorder = new ChangeRecorder<NumberBean>();
+		list.addListener(recorder);
+		int evaluationsBefore = binding.evaluations;
+
+		for (int i = 1; i <= 100; i++) {
+			source.set(i);
+		}
+		executor.runAll();
+		source.set(101);
+		executor.runAll();
+
+		assertEquals(asList("updated[0,1)", "updated[0,1)"), recorder.changes);
+		assertEquals(evaluationsBefore + 2, binding.evaluations);
+	}
+	
+	@Test
+	public void dirty_properties_are_tracked_per_bean_and_getter() {
+		TestBean testBean1 = new TestBean("1", "1");
+		TestBean testBean2 = new TestBean("2", "2");
+		TestBean testBean3 = new TestBean("3", "3");
+		BeanObservableList<TestBean> list = BeanObservableList.create(asList(testBean1, testBean2, testBean3), TestBean.FIRST, TestBean.SECOND);
+		list.setDirtyPropertiesTracked(true);
+		list.addListener(mock(ListChangeListener.class));
+
+		testBean2.getSecond().set("a");
+		testBean3.getFirst().set("b");
+		testBean3.getSecond().set("c");
+
+		assertTrue(list.getDirtyProperties(0).isEmpty());
+		assertEquals(singleton(TestBean.SECOND), list.getDirtyProperties(1));
+		assertTrue(list.isDirty(2, TestBean.FIRST));
+		assertTrue(list.isDirty(2, TestBean.SECOND));
+		assertTrue(Arrays.equals(new int[] { 1, 2 }, list.getDirtyRows(0, 3)));
+		assertTrue(Arrays.equals(new int[] { 2 }, list.getDirtyRows(2, 3)));
+	}
+	
+	@Test
+	public void dirty_properties_can_be_cleared_and_follow_their_bean() {
+		TestBean testBean1 = new TestBean("1", "1");
+		TestBean testBean2 = new TestBean("2", "2");
+		TestBean testBean3 = new TestBean("3", "3");
+		BeanObservableList<TestBean> list = BeanObservableList.create(asList(testBean1, testBean2, testBean3), TestBean.FIRST, TestBean.SECOND);
+		list.setDirtyPropertiesTracked(true);
+		list.addListener(mock(ListChangeListener.class));
+
+		testBean1.getFirst().set("a");
+		testBean3.getFirst().set("b");
+		list.clearDirtyProperties(0);
+		list.remove(testBean2);
+
+		assertFalse(list.isDirty(0, TestBean.FIRST));
+		assertTrue(list.isDirty(1, TestBean.FIRST));
+		
+		list.clearDirtyProperties(0, 2);
+		assertEquals(0, list.getDirtyRows(0, 2).length);
+	}
+	
+	@Test
+	public void added_watched_getters_fire_updates_and_removed_ones_do_not() {
+		TestBean testBean = new TestBean("1", "1");
+		BeanObservableList<TestBean> list = BeanObservableList.create(asList(testBean), TestBean.FIRST);
+		ChangeRecorder<TestBean> recorder = new ChangeRecorder<TestBean>();
+		list.addListener(recorder);
+
+		testBean.getSecond().set("a");
+		assertTrue(list.addWatchedGetter(TestBean.SECOND));
+		assertFalse(list.addWatchedGetter(TestBean.SECOND));
+		testBean.getSecond().set("b");
+		assertTrue(list.removeWatchedGetter(TestBean.FIRST));
+		testBean.getFirst().set("c");
+
+		assertEquals(asList("updated[0,1)"), recorder.changes);
+		assertEquals(asList(TestBean.SECOND), list.getWatchedGetters());
+	}
+	
+	@Test
+	public void removing_a_watched_getter_keeps_the_dirty_bits_of_the_others() {
+		TestBean testBean = new TestBean("1", "1");
+		BeanObservableList<TestBean> list = BeanObservableList.create(asList(testBean), TestBean.FIRST, TestBean.SECOND);
+		list.setDirtyPropertiesTracked(true);
+		list.addListener(mock(ListChangeListener.class));
+
+		testBean.getFirst().set("a");
+		testBean.getSecond().set("b");
+		list.removeWatchedGetter(TestBean.FIRST);
+
+		assertEquals(singleton(TestBean.SECOND), list.getDirtyProperties(0));
+	}
+
+	@Test
+	public void only_beans_in_the_viewport_and_its_margin_fire_updates() {
+		List<NumberBean> beans = numberBeans(10);
+		BeanObservableList<NumberBean> list = BeanObservableList.create(beans, NumberBean.NUMBER);
+		list.setViewport(4, 5, 1);
+		ChangeRecorder<NumberBean> recorder = new ChangeRecorder<NumberBean>();
+		list.addListener(recorder);
+
+		for (NumberBean bean : beans) {
+			bean.number.set(1);
+		}
+
+		assertEquals(asList("updated[3,4)", "updated[4,5)", "updated[5,6)", "updated[6,7)"), recorder.changes);
+	}
+
+	@Test
+	public void moving_the_viewport_moves_the_observed_beans() {
+		List<NumberBean> beans = numberBeans(10);
+		BeanObservableList<NumberBean> list = BeanObservableList.create(beans, NumberBean.NUMBER);
+		ChangeRecorder<NumberBean> recorder = new ChangeRecorder<NumberBean>();
+		list.addListener(recorder);
+		list.setViewport(0, 1, 0);
+		list.setViewport(8, 9, 0);
+
+		beans.get(0).number.set(1);
+		beans.get(9).number.set(1);
+		list.clearViewport();
+		beans.get(5).number.set(1);
+
+		assertEquals(asList("updated[9,10)", "updated[5,6)"), recorder.changes);
+	}
+
+	@Test
+	public void beans_pushed_out_of_the_viewport_by_inserts_are_released() {
+		List<NumberBean> beans = numberBeans(3);
+		BeanObservableList<NumberBean> list = BeanObservableList.create(beans, NumberBean.NUMBER);
+		list.setViewport(0, 0, 0);
+		ChangeRecorder<NumberBean> recorder = new ChangeRecorder<NumberBean>();
+		list.addListener(recorder);
+		NumberBean inserted = new NumberBean();
+		list.add(0, inserted);
+
+		beans.get(0).number.set(1);
+		inserted.number.set(1);
+
+		assertEquals(asList("added[0,1)", "updated[0,1)"), recorder.changes);
+	}
+
+	@Test
+	public void a_change_fires_everything_once_in_order() {
+		Person ann = new Person("ann", 1);
+		Person bob = new Person("bob", 2);
+		Person cid = new Person("cid", 3);
+		Person dan = new Person("dan", 4);
+		Person eve = new Person("eve", 5);
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, bob, cid, dan), Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		list.addListener(recorder);
+
+		list.beginChange();
+		list.add(eve);
+		cid.age.set(30);
+		list.remove(bob);
+		list.endChange();
+
+		assertEquals(1, recorder.count);
+		assertEquals(asList("removed[1,1)[" + bob + "]", "updated[1,2)", "added[3,4)"), recorder.changes);
+	}
+
+	@Test
+	public void beans_moved_in_a_change_are_removed_and_added() {
+		Person ann = new Person("ann", 1);
+		Person bob = new Person("bob", 2);
+		Person cid = new Person("cid", 3);
+		final BeanObservableList<Person> list = BeanObservableList.create(asList(ann, bob, cid), Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		list.addListener(recorder);
+
+		list.runBatch(new Runnable() {
+			@Override
+			public void run() {
+				list.add(0, list.remove(2));
+			}
+		});
+
+		assertEquals(asList("added[0,1)", "removed[3,3)[" + cid + "]"), recorder.changes);
+	}
+
+	@Test
+	public void only_the_outer_change_fires() {
+		Person ann = new Person("ann", 1);
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann), Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		list.addListener(recorder);
+
+		list.beginChange();
+		list.beginChange();
+		ann.age.set(2);
+		list.endChange();
+		assertEquals(0, recorder.count);
+		ann.age.set(3);
+		list.endChange();
+
+		assertEquals(asList("updated[0,1)"), recorder.changes);
+		assertFalse(list.isChanging());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void ending_a_change_that_has_not_begun_fails() {
+		BeanObservableList.create(asList(new Person("ann", 1))).endChange();
+	}
+
+	@Test
+	public void random_changes_replay_to_the_same_list() {
+		Random random = new Random(11);
+		List<Person> people = new ArrayList<Person>();
+		for (int i = 0; i < 50; i++) {
+			people.add(new Person("p" + i, i));
+		}
+		BeanObservableList<Person> list = BeanObservableList.create(people, Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		list.addListener(recorder);
+		ObservableListMirror<Person, Person> replayed = new ObservableListMirror<Person, Person>(new ObservableListMirror.MirrorFactory<Person, Person>() {
+			@Override
+			public Person create(Person original) {
+				return original;
+			}
+
+			@Override
+			public void finished(Person mirror) {
+			}
+		}, list);
+
+		for (int batch = 0; batch < 200; batch++) {
+			list.beginChange();
+			for (int i = random.nextInt(10); i >= 0; i--) {
+				int action = random.nextInt(4);
+				if (action == 0) {
+					list.add(random.nextInt(list.size() + 1), new Person("n" + batch, i));
+				} else if (action == 1 && !list.isEmpty()) {
+					list.remove(random.nextInt(list.size()));
+				} else if (action == 2 && !list.isEmpty()) {
+					list.add(random.nextInt(list.size()), list.remove(random.nextInt(list.size())));
+				} else if (!list.isEmpty()) {
+					list.get(random.nextInt(list.size())).age.set(random.nextInt(100));
+				}
+			}
+			list.endChange();
+			assertEquals(list, new ArrayList<Person>(replayed));
+		}
+		assertTrue(recorder.count <= 200);
+	}
+
+	@Test
+	public void update_where_fires_updates_for_a_getter_that_is_not_watched() {
+		List<Person> people = new ArrayList<Person>();
+		for (int i = 0; i < 10; i++) {
+			people.add(new Person("p" + i, i));
+		}
+		BeanObservableList<Person> list = BeanObservableList.create(people);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		list.addListener(recorder);
+		FilteredBeanList<Person> old = new FilteredBeanList<Person>(list, new BeanFilter<Person>() {
+			@Override
+			public boolean accept(Person bean) {
+				return bean.name.get().equals("old");
+			}
+		});
+
+		list.updateWhere(new BeanFilter<Person>() {
+			@Override
+			public boolean accept(Person bean) {
+				return bean.age.get() >= 7;
+			}
+		}, Person.NAME, "old");
+
+		assertEquals(asList("updated[7,10)"), recorder.changes);
+		assertEquals(people.subList(7, 10), old);
+	}
+
+	@Test
+	public void update_where_fires_one_change_for_the_changed_beans() {
+		List<Person> people = new ArrayList<Person>();
+		for (int i = 0; i < 10000; i++) {
+			people.add(new Person("p" + i, i % 100));
+		}
+		people.get(50).fictional.set(true);
+		BeanObservableList<Person> list = BeanObservableList.create(people, Person.FICTIONAL);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		list.addListener(recorder);
+
+		int accepted = list.updateWhere(new BeanFilter<Person>() {
+			@Override
+			public boolean accept(Person bean) {
+				return bean.age.get() > 40;
+			}
+		}, Person.FICTIONAL, true);
+
+		assertEquals(5900, accepted);
+		assertEquals(1, recorder.count);
+		assertEquals("updated[41,50)", recorder.changes.get(0));
+		assertEquals("updated[51,100)", recorder.changes.get(1));
+		assertEquals("updated[141,200)", recorder.changes.get(2));
+		for (Person person : list) {
+			assertEquals(person.age.get() > 40, person.fictional.get());
+		}
+	}
+
+	@Test
+	public void sort_fires_one_permutation_and_updates_follow_the_beans() {
+		Person ann = new Person("ann", 3);
+		Person bob = new Person("bob", 1);
+		Person cid = new Person("cid", 2);
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, bob, cid), Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		list.addListener(recorder);
+
+		list.sort(BeanComparator.by(Person.AGE));
+		ann.age.set(4);
+
+		assertEquals(asList(bob, cid, ann), list);
+		assertEquals(asList("permutated[0,3)[2, 0, 1]", "updated[2,3)"), recorder.changes);
+	}
+
+	@Test
+	public void sorting_a_large_list_is_stable() {
+		Random random = new Random(3);
+		List<Person> people = new ArrayList<Person>();
+		for (int i = 0; i < 20000; i++) {
+			people.add(new Person("p" + i, random.nextInt(100)));
+		}
+		BeanObservableList<Person> list = BeanObservableList.create(people, Person.AGE);
+		ObservableListMirror<Person, Person> replayed = new ObservableListMirror<Person, Person>(new ObservableListMirror.MirrorFactory<Person, Person>() {
+			@Override
+			public Person create(Person original) {
+				return original;
+			}
+
+			@Override
+			public void finished(Person mirror) {
+			}
+		}, list);
+
+		list.sort(BeanComparator.by(Person.AGE).descending());
+
+		List<Person> expected = new ArrayList<Person>(people);
+		java.util.Collections.sort(expected, BeanComparator.by(Person.AGE).descending());
+		for (int i = 0; i < expected.size(); i++) {
+			assertSame(expected.get(i), list.get(i));
+		}
+		assertEquals(list, new ArrayList<Person>(replayed));
+	}
+
+	@Test
+	public void beans_appended_after_a_front_insert_fire_updates_at_their_index() {
+		BeanObservableList<NumberBean> list = BeanObservableList.create(numberBeans(1024), NumberBean.NUMBER);
+		ChangeRecorder<NumberBean> recorder = new ChangeRecorder<NumberBean>();
+		list.addListener(recorder);
+
+		list.add(0, new NumberBean());
+		NumberBean appended = new NumberBean();
+		list.add(appended);
+		for (int i = 0; i < 3000; i++) {
+			list.add(new NumberBean());
+		}
+		appended.number.set(1);
+
+		assertEquals(3000 + 2, recorder.count - 1);
+		assertEquals("updated[1025,1026)", recorder.changes.get(recorder.changes.size() - 1));
+	}
+
+	@Test
+	public void a_throwing_listener_does_not_stop_the_others() {
+		BeanObservableList<NumberBean> list = BeanObservableList.create(numberBeans(1), NumberBean.NUMBER);
+		list.addListener(new ListChangeListener<NumberBean>() {
+			@Override
+			public void onChanged(Change<? extends NumberBean> c) {
+				throw new IllegalStateException("listener failed");
+			}
+		});
+		ChangeRecorder<NumberBean> recorder = new ChangeRecorder<NumberBean>();
+		list.addListener(recorder);
+		final List<Throwable> reported = new ArrayList<Throwable>();
+		Thread.UncaughtExceptionHandler handler = Thread.currentThread().getUncaughtExceptionHandler();
+		Thread.currentThread().setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(Thread t, Throwable e) {
+				reported.add(e);
+			}
+		});
+		try {
+			list.get(0).number.set(1);
+		} finally {
+			Thread.currentThread().setUncaughtExceptionHandler(handler);
+		}
+
+		assertEquals(asList("updated[0,1)"), recorder.changes);
+		assertEquals("listener failed", reported.get(0).getMessage());
+	}
+
+	@Test
+	public void views_follow_beans_outside_the_viewport() {
+		List<Person> people = new ArrayList<Person>();
+		for (int i = 0; i < 10; i++) {
+			people.add(new Person("p" + i, i));
+		}
+		BeanObservableList<Person> list = BeanObservableList.create(people, Person.NAME);
+		list.setViewport(0, 1, 0);
+		FilteredBeanList<Person> adults = new FilteredBeanList<Person>(list, new BeanFilter<Person>() {
+			@Override
+			public boolean accept(Person bean) {
+				return bean.age.get() >= 18;
+			}
+		}, Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		list.addListener(recorder);
+
+		people.get(8).age.set(20);
+		people.get(8).name.set("off screen");
+		list.setViewport(8, 9, 0);
+		people.get(0).age.set(30);
+
+		assertEquals(asList(people.get(0), people.get(8)), adults);
+		assertEquals(asList("updated[8,9)", "updated[0,1)"), recorder.changes);
+	}
+
+	@Test
+	public void released_views_stop_watching_their_getters() {
+		Person ann = new Person("ann", 1);
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann), Person.NAME);
+		list.setViewport(0, 0, 0);
+		FilteredBeanList<Person> all = new FilteredBeanList<Person>(list, new BeanFilter<Person>() {
+			@Override
+			public boolean accept(Person bean) {
+				return true;
+			}
+		}, Person.AGE, Person.NAME);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		list.addListener(recorder);
+
+		all.release();
+		ann.age.set(2);
+		ann.name.set("anne");
+
+		assertEquals(Arrays.<Object> asList(Person.NAME), new ArrayList<Object>(list.getWatchedGetters()));
+		assertEquals(asList("updated[0,1)"), recorder.changes);
+	}
+
+	private static List<NumberBean> numberBeans(int count) {
+		List<NumberBean> beans = new ArrayList<NumberBean>();
+		for (int i = 0; i < count; i++) {
+			beans.add(new NumberBean());
+		}
+		return beans;
+	}
+
 	// ===  Support ===
+	private static class NumberBean {
+		public static final IntegerPropertyGetter<NumberBean> NUMBER = new IntegerPropertyGetter<NumberBean>() {
+			@Override
+			public IntegerProperty get(NumberBean bean) {
+				return bean.number;
+			}
+		};
+		
+		private final IntegerProperty number = new SimpleIntegerProperty();
+	}
+	
+	private static class CountingBinding extends IntegerBinding {
+		private final IntegerProperty source;
+		private int evaluations;
+		
+		private CountingBinding(IntegerProperty source) {
+			this.source = source;
+			bind(source);
+		}
+		
+		@Override
+		protected int computeValue() {
+			evaluations++;
+			return source.get();
+		}
+	}
+	
+	private static class QueueExecutor implements Executor {
+		private final List<Runnable> queue = new ArrayList<Runnable>();
+		
+		@Override
+		public void execute(Runnable command) {
+			queue.add(command);
+		}
+		
+		public void runAll() {
+			while (!queue.isEmpty()) {
+				queue.remove(0).run();
+			}
+		}
+	}
+	
 	private static class TestBean implements Comparable<TestBean> {
 		public static final StringPropertyGetter<TestBean> FIRST = new StringPropertyGetter<TestBean>() {
 			@Override
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class BeanPropertyIndexTest {
+
+	@Test
+	public void index_finds_beans_by_value() {
+		Person ann = new Person("ann", 30);
+		Person bob = new Person("bob", 40);
+		Person bob2 = new Person("bob", 50);
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, bob, bob2));
+		
+		BeanPropertyIndex<String, Person> index = new BeanPropertyIndex<String, Person>(list, Person.NAME);
+		
+		assertEquals(singleton(ann), index.get("ann"));
+		assertEquals(new HashSet<Person>(asList(bob, bob2)), index.get("bob"));
+		assertEquals(emptySet(), index.get("cid"));
+	}
+	
+	@Test
+	public void index_follows_adds_removes_and_property_changes() {
+		Person ann = new Person("ann", 30);
+		Person bob = new Person("bob", 40);
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann));
+		BeanPropertyIndex<String, Person> index = new BeanPropertyIndex<String, Person>(list, Person.NAME);
+		
+		list.add(bob);
+		list.remove(ann);
+		bob.name.set("rob");
+		
+		assertFalse(index.containsKey("ann"));
+		assertFalse(index.containsKey("bob"));
+		assertEquals(singleton(bob), index.get("rob"));
+		assertEquals(singleton("rob"), index.keySet());
+	}
+	
+	@Test
+	public void index_keeps_beans_that_are_in_the_list_more_than_once_until_the_last_is_removed() {
+		Person ann = new Person("ann", 30);
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, ann));
+		BeanPropertyIndex<String, Person> index = new BeanPropertyIndex<String, Person>(list, Person.NAME);
+		
+		list.remove(0);
+		assertEquals(singleton(ann), index.get("ann"));
+		list.remove(0);
+		assertEquals(emptySet(), index.get("ann"));
+	}
+	
+	@Test
+	public void released_index_stops_following_the_list() {
+		Person ann = new Person("ann", 30);
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann));
+		BeanPropertyIndex<String, Person> index = new BeanPropertyIndex<String, Person>(list, Person.NAME);
+		
+		index.release();
+		ann.name.set("bob");
+		
+		assertTrue(index.containsKey("ann"));
+	}
+	
+	@Test
+	public void sorted_index_finds_ranges_of_values_in_order() {
+		Person a = new Person("a", 30);
+		Person b = new Person("b", 40);
+		Person c = new Person("c", 50);
+		BeanObservableList<Person> list = BeanObservableList.create(asList(c, a, b));
+		SortedBeanPropertyIndex<Number, Person> index = new SortedBeanPropertyIndex<Number, Person>(list, Person.AGE);
+		
+		assertEquals(asList(a, b), index.getRange(30, 50));
+		assertEquals(asList(b, c), index.getTail(40, true));
+		assertEquals(asList(a), index.getHead(40, false));
+		
+		a.age.set(60);
+		
+		assertEquals(asList(b, c, a), index.getTail(0, true));
+		assertEquals(40, index.firstKey());
+		assertEquals(60, index.lastKey());
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class BeanTextIndexTest {
+	private final Person ann = new Person("Ann Smith", 30);
+	private final Person joanne = new Person("Joanne Annan", 10);
+	private final Person bob = new Person("Bob Smithers", 30);
+	
+	@Test
+	public void find_matches_every_query_word_ignoring_case() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, joanne, bob));
+		BeanTextIndex<Person> index = new BeanTextIndex<Person>(list, Person.NAME);
+		
+		assertEquals(asList(ann, joanne), index.find("ANN"));
+		assertEquals(asList(ann, bob), index.find("smith"));
+		assertEquals(asList(ann), index.find("smith ann"));
+		assertTrue(index.find("xyz").isEmpty());
+		assertTrue(index.find(" ").isEmpty());
+	}
+	
+	@Test
+	public void short_query_words_match_word_starts() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, joanne, bob));
+		BeanTextIndex<Person> index = new BeanTextIndex<Person>(list, Person.NAME);
+		
+		assertEquals(asList(ann, joanne), index.find("a"));
+		assertEquals(asList(joanne), index.find("jo"));
+		assertEquals(Collections.emptyList(), index.find("nn"));
+	}
+	
+	@Test
+	public void index_follows_the_list() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, joanne, bob));
+		BeanTextIndex<Person> index = new BeanTextIndex<Person>(list, Person.NAME);
+		
+		bob.name.set("Bob Annson");
+		list.remove(ann);
+		Person cid = new Person("Cid Anning", 20);
+		list.add(cid);
+		
+		assertEquals(asList(cid, joanne, bob), index.find("ann"));
+		assertTrue(index.find("smith").isEmpty());
+	}
+	
+	@Test
+	public void search_results_stay_up_to_date() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, joanne, bob));
+		BeanTextIndex<Person> index = new BeanTextIndex<Person>(list, Person.NAME);
+		BeanTextIndex<Person>.SearchResults results = index.search("smith");
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		results.addListener(recorder);
+		
+		joanne.name.set("Joanne Smith");
+		ann.name.set("Ann Smyth");
+		bob.name.set("Bob Smithson");
+		
+		assertEquals(asList("added[1,2)", "removed[0,0)[" + ann + "]", "updated[1,2)"), recorder.changes);
+		assertEquals(asList(joanne, bob), results);
+	}
+	
+	@Test
+	public void results_of_one_list_change_fire_in_ascending_order() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, joanne, bob));
+		BeanTextIndex<Person> index = new BeanTextIndex<Person>(list, Person.NAME);
+		Person cid = new Person("Cid", 20);
+		// the results are in index order, cid is indexed after bob but comes first in the list
+		list.add(0, cid);
+		BeanTextIndex<Person>.SearchResults results = index.search("smith");
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		results.addListener(recorder);
+		
+		list.beginChange();
+		cid.name.set("Cid Smith");
+		ann.name.set("Ann Jones");
+		list.endChange();
+		
+		assertEquals(asList("removed[0,0)[" + ann + "]", "added[1,2)"), recorder.changes);
+		assertEquals(1, recorder.count);
+		assertEquals(asList(bob, cid), results);
+	}
+	
+	@Test
+	public void changing_the_query_fires_only_the_differences() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, joanne, bob));
+		BeanTextIndex<Person> index = new BeanTextIndex<Person>(list, Person.NAME);
+		BeanTextIndex<Person>.SearchResults results = index.search("smith");
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		results.addListener(recorder);
+		
+		results.setQuery("ann");
+		
+		assertEquals(asList("replaced[1,2)[" + bob + "]"), recorder.changes);
+		assertEquals(asList(ann, joanne), results);
+		assertEquals("ann", results.getQuery());
+	}
+	
+	@Test
+	public void released_results_are_emptied() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, joanne, bob));
+		BeanTextIndex<Person> index = new BeanTextIndex<Person>(list, Person.NAME);
+		BeanTextIndex<Person>.SearchResults results = index.search("smith");
+		
+		results.release();
+		list.remove(ann);
+		
+		assertTrue(results.isEmpty());
+		assertEquals(asList(bob), index.find("smith"));
+	}
+	
+	@Test
+	public void releasing_the_index_releases_its_results() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, joanne, bob));
+		BeanTextIndex<Person> index = new BeanTextIndex<Person>(list, Person.NAME);
+		BeanTextIndex<Person>.SearchResults results = index.search("smith");
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		results.addListener(recorder);
+		
+		index.release();
+		joanne.name.set("Joanne Smith");
+		
+		assertTrue(results.isEmpty());
+		assertEquals(asList("removed[0,0)[" + ann + ", " + bob + "]"), recorder.changes);
+	}
+}
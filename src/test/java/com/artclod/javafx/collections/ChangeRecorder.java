@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+/**
+ * Records the changes a list fires as strings, e.g. "added[0,2)",
+ * "removed[1,1)[ann]", "updated[3,4)" or "permutated[0,2)[1, 0]".
+ */
+class ChangeRecorder<T> implements ListChangeListener<T> {
+	final List<String> changes = new ArrayList<String>();
+	// the list of the last change
+	ObservableList<? extends T> source;
+	int count;
+	
+	@Override
+	public void onChanged(Change<? extends T> c) {
+		count++;
+		source = c.getList();
+		while (c.next()) {
+			String range = "[" + c.getFrom() + "," + c.getTo() + ")";
+			if (c.wasPermutated()) {
+				List<Integer> permutation = new ArrayList<Integer>();
+				for (int i = c.getFrom(); i < c.getTo(); i++) {
+					permutation.add(c.getPermutation(i));
+				}
+				changes.add("permutated" + range + permutation);
+			} else if (c.wasUpdated()) {
+				changes.add("updated" + range);
+			} else if (c.wasAdded() && c.wasRemoved()) {
+				changes.add("replaced" + range + c.getRemoved());
+			} else if (c.wasAdded()) {
+				changes.add("added" + range);
+			} else {
+				changes.add("removed" + range + c.getRemoved());
+			}
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ChunkedListTest {
+
+	@Test
+	public void addAll_inserts_elements_in_order() {
+		ChunkedList<Item> list = new ChunkedList<Item>(2);
+		list.addAll(0, items(0, 5));
+		list.addAll(2, items(5, 8));
+
+		assertContents(asList(0, 1, 5, 6, 7, 2, 3, 4), list);
+	}
+
+	@Test
+	public void remove_range_returns_the_removed_elements_and_detaches_them() {
+		ChunkedList<Item> list = new ChunkedList<Item>(2);
+		List<Item> items = items(0, 9);
+		list.addAll(0, items);
+
+		List<Item> removed = list.remove(2, 7);
+
+		assertEquals(items.subList(2, 7), removed);
+		assertContents(asList(0, 1, 7, 8), list);
+		assertEquals(-1, list.indexOf(items.get(3)));
+	}
+
+	@Test
+	public void elements_know_their_index() {
+		ChunkedList<Item> list = new ChunkedList<Item>(2);
+		List<Item> items = items(0, 9);
+		list.addAll(0, items);
+		list.addAll(0, items(9, 12));
+		list.remove(1, 2);
+
+		assertEquals(2, list.indexOf(items.get(0)));
+		assertEquals(10, list.indexOf(items.get(8)));
+	}
+
+	@Test
+	public void permute_moves_elements_to_their_new_index() {
+		ChunkedList<Item> list = new ChunkedList<Item>(2);
+		List<Item> items = items(0, 5);
+		list.addAll(0, items);
+
+		list.permute(1, 4, new int[] { 3, 1, 2 });
+
+		assertContents(asList(0, 2, 3, 1, 4), list);
+		assertEquals(3, list.indexOf(items.get(1)));
+	}
+
+	@Test
+	public void null_elements_are_allowed() {
+		ChunkedList<Item> list = new ChunkedList<Item>(2);
+		list.addAll(0, items(0, 3));
+		list.add(1, null);
+
+		assertNull(list.get(1));
+		assertEquals(4, list.size());
+	}
+
+	@Test
+	public void appending_one_at_a_time_fills_several_chunks() {
+		ChunkedList<Item> list = new ChunkedList<Item>(2);
+		List<Item> items = items(0, 9);
+		for (Item item : items) {
+			list.add(list.size(), item);
+		}
+		assertContents(asList(0, 1, 2, 3, 4, 5, 6, 7, 8), list);
+		for (int i = 0; i < items.size(); i++) {
+			assertEquals(i, list.indexOf(items.get(i)));
+		}
+	}
+
+	@Test
+	public void appending_after_an_insert_at_the_front() {
+		ChunkedList<Item> list = new ChunkedList<Item>(2);
+		list.addAll(0, items(0, 4));
+		list.add(0, new Item(-1));
+		list.add(list.size(), new Item(4));
+		list.add(list.size(), new Item(5));
+		assertContents(asList(-1, 0, 1, 2, 3, 4, 5), list);
+	}
+
+	@Test
+	public void random_operations_match_an_array_list() {
+		Random random = new Random(42);
+		ChunkedList<Item> list = new ChunkedList<Item>(3);
+		List<Item> expected = new ArrayList<Item>();
+		int next = 0;
+		for (int step = 0; step < 2000; step++) {
+			int operation = random.nextInt(3);
+			if (operation == 0 || expected.isEmpty()) {
+				int index = random.nextInt(expected.size() + 1);
+				List<Item> added = items(next, next + random.nextInt(10));
+				next += added.size();
+				list.addAll(index, added);
+				expected.addAll(index, added);
+			} else if (operation == 1) {
+				int from = random.nextInt(expected.size());
+				int to = from + random.nextInt(expected.size() - from + 1);
+				assertEquals(expected.subList(from, to), list.remove(from, to));
+				expected.subList(from, to).clear();
+			} else {
+				int from = random.nextInt(expected.size());
+				int to = from + random.nextInt(expected.size() - from + 1);
+				List<Integer> targets = new ArrayList<Integer>();
+				for (int i = from; i < to; i++) {
+					targets.add(i);
+				}
+				Collections.shuffle(targets, random);
+				int[] permutation = new int[to - from];
+				List<Item> permuted = new ArrayList<Item>(expected.subList(from, to));
+				for (int i = 0; i < permutation.length; i++) {
+					permutation[i] = targets.get(i);
+					permuted.set(permutation[i] - from, expected.get(from + i));
+				}
+				list.permute(from, to, permutation);
+				for (int i = 0; i < permuted.size(); i++) {
+					expected.set(from + i, permuted.get(i));
+				}
+			}
+			assertEquals(expected.size(), list.size());
+			if (!expected.isEmpty()) {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.get(index), list.get(index));
+				assertEquals(index, list.indexOf(expected.get(index)));
+			}
+		}
+		List<Item> actual = new ArrayList<Item>();
+		for (Item item : list) {
+			actual.add(item);
+		}
+		assertEquals(expected, actual);
+	}
+
+	// ===  Support ===
+	private static List<Item> items(int from, int to) {
+		List<Item> items = new ArrayList<Item>();
+		for (int i = from; i < to; i++) {
+			items.add(new Item(i));
+		}
+		return items;
+	}
+
+	private static void assertContents(List<Integer> expected, ChunkedList<Item> list) {
+		List<Integer> actual = new ArrayList<Integer>();
+		for (Item item : list) {
+			actual.add(item.value);
+		}
+		assertEquals(expected, actual);
+	}
+
+	private static class Item extends ChunkedList.Element {
+		private final int value;
+
+		private Item(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public String toString() {
+			return "Item " + value;
+		}
+	}
+}
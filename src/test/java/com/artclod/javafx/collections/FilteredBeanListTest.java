@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+
+import javafx.collections.FXCollections;
+
+import org.junit.Test;
+
+public class FilteredBeanListTest {
+	private static final BeanFilter<Person> ADULTS = new BeanFilter<Person>() {
+		@Override
+		public boolean accept(Person bean) {
+			return bean.age.get() >= 18;
+		}
+	};
+	
+	private final Person ann = new Person("ann", 30);
+	private final Person bob = new Person("bob", 10);
+	private final Person cid = new Person("cid", 40);
+	
+	@Test
+	public void view_only_has_the_beans_that_pass_in_source_order() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob, cid));
+		
+		FilteredBeanList<Person> adults = new FilteredBeanList<Person>(source, ADULTS, Person.AGE);
+		
+		assertEquals(asList(ann, cid), adults);
+		assertEquals(2, adults.getSourceIndex(1));
+	}
+	
+	@Test
+	public void a_bean_update_fires_a_single_add_remove_or_update() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob, cid));
+		FilteredBeanList<Person> adults = new FilteredBeanList<Person>(source, ADULTS, Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		adults.addListener(recorder);
+		
+		bob.age.set(20);
+		ann.age.set(5);
+		cid.age.set(41);
+		bob.name.set("rob");
+		
+		assertEquals(asList("added[1,2)", "removed[0,0)[ann]", "updated[1,2)"), recorder.changes);
+		assertEquals(asList(bob, cid), adults);
+	}
+	
+	@Test
+	public void source_adds_and_removes_are_filtered() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob));
+		FilteredBeanList<Person> adults = new FilteredBeanList<Person>(source, ADULTS, Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		adults.addListener(recorder);
+		
+		source.add(0, cid);
+		source.add(1, new Person("dan", 3));
+		source.remove(ann);
+		
+		assertEquals(asList("added[0,1)", "removed[1,1)[ann]"), recorder.changes);
+		assertEquals(asList(cid), adults);
+		assertEquals(0, adults.getSourceIndex(0));
+	}
+	
+	@Test
+	public void sorting_the_source_keeps_the_view_in_source_order() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(cid, bob, ann));
+		FilteredBeanList<Person> adults = new FilteredBeanList<Person>(source, ADULTS, Person.AGE);
+		
+		FXCollections.sort(source, new java.util.Comparator<Person>() {
+			@Override
+			public int compare(Person o1, Person o2) {
+				return o1.name.get().compareTo(o2.name.get());
+			}
+		});
+		
+		assertEquals(asList(ann, cid), adults);
+	}
+	
+	@Test
+	public void a_source_permutation_permutes_the_view() {
+		Person dan = new Person("dan", 20);
+		BeanObservableList<Person> source = BeanObservableList.create(asList(cid, bob, dan, ann));
+		FilteredBeanList<Person> adults = new FilteredBeanList<Person>(source, ADULTS, Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		adults.addListener(recorder);
+		
+		source.sort(BeanComparator.by(Person.NAME));
+		
+		assertEquals(asList("permutated[0,3)[1, 2, 0]"), recorder.changes);
+		assertEquals(asList(ann, cid, dan), adults);
+		assertEquals(3, adults.getSourceIndex(2));
+	}
+	
+	@Test
+	public void changing_the_filter_only_fires_adds_and_removes() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob, cid));
+		FilteredBeanList<Person> adults = new FilteredBeanList<Person>(source, ADULTS, Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		adults.addListener(recorder);
+		
+		adults.setFilter(new BeanFilter<Person>() {
+			@Override
+			public boolean accept(Person bean) {
+				return bean.age.get() < 35;
+			}
+		});
+		
+		assertEquals(asList("replaced[1,2)[cid]"), recorder.changes);
+		assertEquals(asList(ann, bob), adults);
+	}
+}
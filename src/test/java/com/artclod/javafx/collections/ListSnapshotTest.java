@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javafx.collections.ListChangeListener;
+
+import org.junit.Test;
+
+public class ListSnapshotTest {
+	private final Person ann = new Person("ann", 30);
+	private final Person bob = new Person("bob", 10);
+	private final Person cid = new Person("cid", 20);
+	
+	@Test
+	public void snapshots_do_not_change_with_the_list() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, bob));
+		
+		ListSnapshot<Person> before = list.snapshot();
+		list.add(0, cid);
+		list.remove(bob);
+		
+		assertEquals(asList(ann, bob), before);
+		assertEquals(asList(cid, ann), list.snapshot());
+	}
+	
+	@Test
+	public void snapshots_without_changes_are_shared() {
+		BeanObservableList<Person> list = BeanObservableList.create(asList(ann, bob));
+		
+		ListSnapshot<Person> snapshot = list.snapshot();
+		
+		assertSame(snapshot, list.snapshot());
+		list.sort(BeanComparator.by(Person.AGE));
+		assertNotSame(snapshot, list.snapshot());
+		assertEquals(asList(bob, ann), list.snapshot());
+	}
+	
+	@Test
+	public void a_listener_snapshot_has_the_change_in_it() {
+		final BeanObservableList<Person> list = BeanObservableList.create(asList(ann, bob));
+		list.snapshot();
+		final List<List<Person>> seen = new ArrayList<List<Person>>();
+		list.addListener(new ListChangeListener<Person>() {
+			@Override
+			public void onChanged(Change<? extends Person> c) {
+				seen.add(list.snapshot());
+			}
+		});
+		
+		list.add(cid);
+		list.sort(BeanComparator.by(Person.AGE));
+		list.beginChange();
+		list.remove(ann);
+		list.endChange();
+		
+		assertEquals(asList(asList(ann, bob, cid), asList(bob, cid, ann), asList(bob, cid)), seen);
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void snapshots_can_not_be_modified() {
+		BeanObservableList.create(asList(ann)).snapshot().add(bob);
+	}
+	
+	@Test
+	public void snapshots_match_the_list_through_random_edits() {
+		Random random = new Random(5);
+		List<Person> people = new ArrayList<Person>();
+		for (int i = 0; i < 5000; i++) {
+			people.add(new Person("p" + i, i));
+		}
+		BeanObservableList<Person> list = BeanObservableList.create(people);
+		List<ListSnapshot<Person>> snapshots = new ArrayList<ListSnapshot<Person>>();
+		List<List<Person>> copies = new ArrayList<List<Person>>();
+		
+		for (int i = 0; i < 500; i++) {
+			int action = random.nextInt(4);
+			if (action == 0) {
+				List<Person> added = new ArrayList<Person>();
+				for (int j = random.nextInt(3000); j >= 0; j--) {
+					added.add(new Person("n" + i, j));
+				}
+				list.addAll(random.nextInt(list.size() + 1), added);
+			} else if (action == 1 && !list.isEmpty()) {
+				int from = random.nextInt(list.size());
+				list.remove(from, Math.min(list.size(), from + random.nextInt(2000)));
+			} else if (action == 2 && !list.isEmpty()) {
+				list.set(random.nextInt(list.size()), new Person("s" + i, i));
+			} else {
+				list.add(random.nextInt(list.size() + 1), new Person("a" + i, i));
+			}
+			if (i % 10 == 0) {
+				snapshots.add(list.snapshot());
+				copies.add(new ArrayList<Person>(list));
+			}
+		}
+		
+		for (int i = 0; i < snapshots.size(); i++) {
+			assertEquals(copies.get(i), new ArrayList<Person>(snapshots.get(i)));
+			assertEquals(copies.get(i), snapshots.get(i));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
+import com.artclod.javafx.swap.beans.getter.BooleanPropertyGetter;
+import com.artclod.javafx.swap.beans.getter.DoublePropertyGetter;
+import com.artclod.javafx.swap.beans.getter.IntegerPropertyGetter;
+import com.artclod.javafx.swap.beans.getter.StringPropertyGetter;
+
+/**
+ * Bean used by the tests of the views built on BeanObservableList.
+ */
+class Person {
+	public static final StringPropertyGetter<Person> NAME = new StringPropertyGetter<Person>() {
+		@Override
+		public StringProperty get(Person bean) {
+			return bean.name;
+		}
+	};
+	public static final IntegerPropertyGetter<Person> AGE = new IntegerPropertyGetter<Person>() {
+		@Override
+		public IntegerProperty get(Person bean) {
+			return bean.age;
+		}
+	};
+	public static final DoublePropertyGetter<Person> SCORE = new DoublePropertyGetter<Person>() {
+		@Override
+		public DoubleProperty get(Person bean) {
+			return bean.score;
+		}
+	};
+	public static final BooleanPropertyGetter<Person> FICTIONAL = new BooleanPropertyGetter<Person>() {
+		@Override
+		public BooleanProperty get(Person bean) {
+			return bean.fictional;
+		}
+	};
+	
+	final StringProperty name;
+	final IntegerProperty age;
+	final DoubleProperty score = new SimpleDoubleProperty();
+	final BooleanProperty fictional = new SimpleBooleanProperty();
+	
+	Person(String name, int age) {
+		this.name = new SimpleStringProperty(name);
+		this.age = new SimpleIntegerProperty(age);
+	}
+	
+	@Override
+	public String toString() {
+		return name.get();
+	}
+}
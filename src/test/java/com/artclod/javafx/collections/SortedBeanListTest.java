@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SortedBeanListTest {
+	private final Person ann = new Person("ann", 30);
+	private final Person bob = new Person("bob", 10);
+	private final Person cid = new Person("cid", 40);
+	private final Person dan = new Person("dan", 20);
+	
+	@Test
+	public void view_is_sorted_by_the_comparator() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob, cid, dan));
+		
+		SortedBeanList<Person> byAge = new SortedBeanList<Person>(source, BeanComparator.by(Person.AGE), Person.AGE);
+		
+		assertEquals(asList(bob, dan, ann, cid), byAge);
+		assertEquals(2, byAge.getSourceIndex(3));
+		assertEquals(3, byAge.getViewIndex(2));
+	}
+	
+	@Test
+	public void comparators_compose_getters() {
+		Person ann2 = new Person("ann", 5);
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob, ann2));
+		
+		SortedBeanList<Person> sorted = new SortedBeanList<Person>(source, BeanComparator.by(Person.NAME).thenByDescending(Person.AGE));
+		
+		assertEquals(asList(ann, ann2, bob), sorted);
+		sorted.setComparator(BeanComparator.by(Person.NAME).thenBy(Person.AGE).descending());
+		assertEquals(asList(bob, ann, ann2), sorted);
+	}
+	
+	@Test
+	public void an_update_that_keeps_the_order_only_fires_an_update() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob, cid));
+		SortedBeanList<Person> byAge = new SortedBeanList<Person>(source, BeanComparator.by(Person.AGE), Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		byAge.addListener(recorder);
+		
+		ann.age.set(35);
+		
+		assertEquals(asList("updated[1,2)"), recorder.changes);
+	}
+	
+	@Test
+	public void an_update_out_of_order_moves_the_bean_with_one_permutation() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob, cid, dan));
+		SortedBeanList<Person> byAge = new SortedBeanList<Person>(source, BeanComparator.by(Person.AGE), Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		byAge.addListener(recorder);
+		
+		bob.age.set(35);
+		
+		assertEquals(asList("permutated[0,3)[2, 0, 1]", "updated[2,3)"), recorder.changes);
+		assertEquals(asList(dan, ann, bob, cid), byAge);
+	}
+	
+	@Test
+	public void source_adds_are_merged_in_and_removes_are_removed() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob));
+		SortedBeanList<Person> byAge = new SortedBeanList<Person>(source, BeanComparator.by(Person.AGE), Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		byAge.addListener(recorder);
+		
+		source.addAll(cid, dan);
+		source.remove(ann);
+		
+		assertEquals(asList("added[1,2)", "added[3,4)", "removed[2,2)[ann]"), recorder.changes);
+		assertEquals(asList(bob, dan, cid), byAge);
+		assertEquals(2, byAge.getSourceIndex(1));
+	}
+	
+	@Test
+	public void coalesced_updates_are_put_back_in_order_together() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob, cid, dan));
+		SortedBeanList<Person> byAge = new SortedBeanList<Person>(source, BeanComparator.by(Person.AGE), Person.AGE);
+		List<Runnable> flushes = new ArrayList<Runnable>();
+		source.coalesceUpdates(new QueueingExecutor(flushes));
+		
+		bob.age.set(50);
+		cid.age.set(1);
+		dan.age.set(45);
+		flushes.get(0).run();
+		
+		assertEquals(asList(cid, ann, dan, bob), byAge);
+	}
+	
+	@Test
+	public void view_stays_sorted_through_random_edits() {
+		Random random = new Random(7);
+		List<Person> people = new ArrayList<Person>();
+		for (int i = 0; i < 200; i++) {
+			people.add(new Person("p" + i, random.nextInt(50)));
+		}
+		BeanObservableList<Person> source = BeanObservableList.create(people);
+		SortedBeanList<Person> byAge = new SortedBeanList<Person>(source, BeanComparator.by(Person.AGE), Person.AGE);
+		// replays the changes the view fires
+		List<Person> replayed = replay(byAge);
+		
+		for (int i = 0; i < 2000; i++) {
+			int action = random.nextInt(4);
+			if (action == 0) {
+				source.add(random.nextInt(source.size() + 1), new Person("n" + i, random.nextInt(50)));
+			} else if (action == 1 && !source.isEmpty()) {
+				source.remove(random.nextInt(source.size()));
+			} else if (!source.isEmpty()) {
+				source.get(random.nextInt(source.size())).age.set(random.nextInt(50));
+			}
+		}
+		
+		List<Person> expected = new ArrayList<Person>(source);
+		Collections.sort(expected, BeanComparator.by(Person.AGE));
+		List<Integer> expectedAges = new ArrayList<Integer>();
+		List<Integer> ages = new ArrayList<Integer>();
+		for (int i = 0; i < expected.size(); i++) {
+			expectedAges.add(expected.get(i).age.get());
+			ages.add(byAge.get(i).age.get());
+			assertEquals(byAge.get(i), source.get(byAge.getSourceIndex(i)));
+		}
+		assertEquals(expectedAges, ages);
+		assertEquals(byAge, new ArrayList<Person>(replayed));
+	}
+	
+	@Test
+	public void a_change_with_several_sub_changes_fires_them_in_ascending_order() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob));
+		SortedBeanList<Person> byAge = new SortedBeanList<Person>(source, BeanComparator.by(Person.AGE), Person.AGE);
+		List<Person> replayed = replay(byAge);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		byAge.addListener(recorder);
+		Person eve = new Person("eve", 5);
+		
+		source.beginChange();
+		source.add(0, cid);
+		source.add(eve);
+		ann.age.set(25);
+		source.endChange();
+		
+		assertEquals(asList("added[0,1)", "updated[2,3)", "added[3,4)"), recorder.changes);
+		assertEquals(asList(eve, bob, ann, cid), byAge);
+		assertEquals(byAge, replayed);
+	}
+	
+	@Test
+	public void remove_all_fires_its_removes_in_ascending_order() {
+		Person eve = new Person("eve", 50);
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob, cid, dan, eve));
+		SortedBeanList<Person> byAge = new SortedBeanList<Person>(source, BeanComparator.by(Person.AGE), Person.AGE);
+		List<Person> replayed = replay(byAge);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		byAge.addListener(recorder);
+		
+		source.removeAll(asList(bob, cid, eve));
+		
+		assertEquals(asList("removed[0,0)[bob]", "removed[2,2)[cid, eve]"), recorder.changes);
+		assertEquals(asList(dan, ann), byAge);
+		assertEquals(1, byAge.getSourceIndex(0));
+		assertEquals(byAge, replayed);
+	}
+	
+	@Test
+	public void view_stays_sorted_through_random_batches() {
+		Random random = new Random(11);
+		List<Person> people = new ArrayList<Person>();
+		for (int i = 0; i < 100; i++) {
+			people.add(new Person("p" + i, random.nextInt(50)));
+		}
+		BeanObservableList<Person> source = BeanObservableList.create(people);
+		SortedBeanList<Person> byAge = new SortedBeanList<Person>(source, BeanComparator.by(Person.AGE), Person.AGE);
+		List<Person> replayed = replay(byAge);
+		
+		for (int batch = 0; batch < 200; batch++) {
+			source.beginChange();
+			for (int i = 0; i < 5; i++) {
+				int action = random.nextInt(3);
+				if (action == 0) {
+					source.add(random.nextInt(source.size() + 1), new Person("n" + batch + "." + i, random.nextInt(50)));
+				} else if (action == 1 && !source.isEmpty()) {
+					source.remove(random.nextInt(source.size()));
+				} else if (!source.isEmpty()) {
+					source.get(random.nextInt(source.size())).age.set(random.nextInt(50));
+				}
+			}
+			source.endChange();
+			
+			for (int i = 1; i < byAge.size(); i++) {
+				assertEquals(true, byAge.get(i - 1).age.get() <= byAge.get(i).age.get());
+			}
+			for (int i = 0; i < byAge.size(); i++) {
+				assertEquals(byAge.get(i), source.get(byAge.getSourceIndex(i)));
+			}
+			assertEquals(byAge, replayed);
+		}
+	}
+	
+	@Test
+	public void null_beans_sort_like_null_values() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, null, bob));
+		SortedBeanList<Person> byAge = new SortedBeanList<Person>(source, BeanComparator.by(Person.AGE), Person.AGE);
+		
+		source.add(null);
+		source.add(dan);
+		
+		assertEquals(asList(null, null, bob, dan, ann), byAge);
+	}
+	
+	@Test
+	public void a_bean_in_the_source_twice_is_moved_at_both_places() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(bob, dan, ann, bob, cid));
+		SortedBeanList<Person> byAge = new SortedBeanList<Person>(source, BeanComparator.by(Person.AGE), Person.AGE);
+		List<Person> replayed = replay(byAge);
+		
+		bob.age.set(35);
+		
+		assertEquals(asList(dan, ann, bob, bob, cid), byAge);
+		assertEquals(byAge, replayed);
+		Person eve = new Person("eve", 0);
+		source.beginChange();
+		source.add(eve);
+		bob.age.set(0);
+		source.endChange();
+		
+		assertEquals(asList(bob, bob, eve, dan, ann, cid), byAge);
+		assertEquals(byAge, replayed);
+	}
+	
+	private static List<Person> replay(SortedBeanList<Person> view) {
+		return new ObservableListMirror<Person, Person>(new ObservableListMirror.MirrorFactory<Person, Person>() {
+			@Override
+			public Person create(Person original) {
+				return original;
+			}
+			
+			@Override
+			public void finished(Person mirror) {
+			}
+		}, view);
+	}
+	
+	private static class QueueingExecutor implements java.util.concurrent.Executor {
+		private final List<Runnable> queue;
+		
+		private QueueingExecutor(List<Runnable> queue) {
+			this.queue = queue;
+		}
+		
+		@Override
+		public void execute(Runnable command) {
+			queue.add(command);
+		}
+	}
+}
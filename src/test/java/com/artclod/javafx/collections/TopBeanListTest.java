@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TopBeanListTest {
+	private final Person ann = new Person("ann", 30);
+	private final Person bob = new Person("bob", 10);
+	private final Person cid = new Person("cid", 50);
+	private final Person dan = new Person("dan", 20);
+	
+	@Test
+	public void view_shows_the_first_beans_in_comparator_order() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob, cid, dan));
+		
+		TopBeanList<Person> oldest = new TopBeanList<Person>(source, BeanComparator.by(Person.AGE).descending(), 2, Person.AGE);
+		
+		assertEquals(asList(cid, ann), oldest);
+	}
+	
+	@Test
+	public void changes_to_beans_that_are_not_shown_fire_nothing() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob, cid, dan));
+		TopBeanList<Person> oldest = new TopBeanList<Person>(source, BeanComparator.by(Person.AGE).descending(), 2, Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		oldest.addListener(recorder);
+		
+		bob.age.set(25);
+		source.add(new Person("eve", 1));
+		source.remove(dan);
+		
+		assertEquals(0, recorder.count);
+	}
+	
+	@Test
+	public void beans_move_in_out_and_within_the_view() {
+		BeanObservableList<Person> source = BeanObservableList.create(asList(ann, bob, cid, dan));
+		TopBeanList<Person> oldest = new TopBeanList<Person>(source, BeanComparator.by(Person.AGE).descending(), 2, Person.AGE);
+		ChangeRecorder<Person> recorder = new ChangeRecorder<Person>();
+		oldest.addListener(recorder);
+		
+		ann.age.set(60);
+		cid.age.set(55);
+		bob.age.set(70);
+		source.remove(bob);
+		
+		assertEquals(asList("permutated[0,2)[1, 0]", "updated[0,1)", "updated[1,2)", "replaced[0,2)[ann, cid]", "replaced[0,2)[bob, ann]"), recorder.changes);
+		assertEquals(asList(ann, cid), oldest);
+	}
+	
+	@Test
+	public void beans_updated_together_are_put_in_order_together() {
+		List<Person> people = new ArrayList<Person>();
+		for (int age : new int[] { 12, 1, 9, 5, 7, 2, 10, 6, 8, 11, 14, 13 }) {
+			people.add(new Person("p" + people.size(), age));
+		}
+		BeanObservableList<Person> source = BeanObservableList.create(people, Person.AGE);
+		TopBeanList<Person> oldest = new TopBeanList<Person>(source, BeanComparator.by(Person.AGE).descending(), 2, Person.AGE);
+		
+		source.updateWhere(new BeanFilter<Person>() {
+			@Override
+			public boolean accept(Person bean) {
+				return bean.age.get() > 5;
+			}
+		}, Person.AGE, 0);
+		
+		assertEquals(asList(people.get(3), people.get(5)), oldest);
+	}
+	
+	@Test
+	public void view_stays_correct_through_random_edits() {
+		Random random = new Random(11);
+		List<Person> people = new ArrayList<Person>();
+		for (int i = 0; i < 100; i++) {
+			people.add(new Person("p" + i, random.nextInt(1000)));
+		}
+		BeanObservableList<Person> source = BeanObservableList.create(people);
+		TopBeanList<Person> youngest = new TopBeanList<Person>(source, BeanComparator.by(Person.AGE), 5, Person.AGE);
+		ObservableListMirror<Person, Person> replayed = new ObservableListMirror<Person, Person>(new ObservableListMirror.MirrorFactory<Person, Person>() {
+			@Override
+			public Person create(Person original) {
+				return original;
+			}
+			
+			@Override
+			public void finished(Person mirror) {
+			}
+		}, youngest);
+		
+		for (int i = 0; i < 3000; i++) {
+			int action = random.nextInt(4);
+			if (action == 0) {
+				source.add(random.nextInt(source.size() + 1), new Person("n" + i, random.nextInt(1000)));
+			} else if (action == 1 && !source.isEmpty()) {
+				source.remove(random.nextInt(source.size()));
+			} else if (!source.isEmpty()) {
+				source.get(random.nextInt(source.size())).age.set(random.nextInt(1000));
+			}
+		}
+		
+		List<Integer> expected = new ArrayList<Integer>();
+		for (Person person : source) {
+			expected.add(person.age.get());
+		}
+		Collections.sort(expected);
+		List<Integer> shown = new ArrayList<Integer>();
+		for (Person person : youngest) {
+			shown.add(person.age.get());
+		}
+		assertEquals(expected.subList(0, 5), shown);
+		assertEquals(youngest, new ArrayList<Person>(replayed));
+	}
+}
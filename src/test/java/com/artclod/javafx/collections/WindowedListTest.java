@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2012, Kristian Kime
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package com.artclod.javafx.collections;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import org.junit.Test;
+
+public class WindowedListTest {
+	
+	@Test
+	public void window_shows_a_page_of_the_source() {
+		ObservableList<String> source = FXCollections.observableArrayList("a", "b", "c", "d", "e");
+		
+		WindowedList<String> page = new WindowedList<String>(source, 1, 3);
+		
+		assertEquals(asList("b", "c", "d"), page);
+		page.setWindow(4, 3);
+		assertEquals(asList("e"), page);
+	}
+	
+	@Test
+	public void changes_after_the_page_are_dropped_and_changes_before_it_shift_it() {
+		ObservableList<String> source = FXCollections.observableArrayList("a", "b", "c", "d", "e");
+		WindowedList<String> page = new WindowedList<String>(source, 1, 2);
+		ChangeRecorder<String> recorder = new ChangeRecorder<String>();
+		page.addListener(recorder);
+		
+		source.add("f");
+		source.remove("d");
+		source.add(0, "z");
+		
+		assertEquals(asList("added[0,1)", "removed[2,2)[c]"), recorder.changes);
+		assertEquals(asList("a", "b"), page);
+	}
+	
+	@Test
+	public void moving_the_page_fires_only_what_comes_and_goes() {
+		ObservableList<String> source = FXCollections.observableArrayList("a", "b", "c", "d", "e");
+		WindowedList<String> page = new WindowedList<String>(source, 0, 3);
+		ChangeRecorder<String> recorder = new ChangeRecorder<String>();
+		page.addListener(recorder);
+		
+		page.setOffset(1);
+		page.setWindow(0, 2);
+		
+		assertEquals(asList("removed[0,0)[a]", "added[2,3)", "added[0,1)", "removed[2,2)[c, d]"), recorder.changes);
+		assertEquals(asList("a", "b"), page);
+	}
+	
+	@Test
+	public void a_change_with_several_sub_changes_is_worked_out_from_the_final_source() {
+		ObservableList<String> source = FXCollections.observableArrayList();
+		for (int i = 0; i < 12; i++) {
+			source.add("a" + i);
+		}
+		WindowedList<String> page = new WindowedList<String>(source, 0, 10);
+		ChangeRecorder<String> recorder = new ChangeRecorder<String>();
+		page.addListener(recorder);
+		
+		source.removeAll("a2", "a6");
+		
+		assertEquals(asList("a0", "a1", "a3", "a4", "a5", "a7", "a8", "a9", "a10", "a11"), page);
+		assertEquals(asList("removed[2,2)[a2]", "removed[5,5)[a6]", "added[8,10)"), recorder.changes);
+		assertEquals(1, recorder.count);
+	}
+	
+	@Test
+	public void page_follows_random_edits_and_moves() {
+		Random random = new Random(5);
+		ObservableList<Integer> source = FXCollections.observableArrayList();
+		for (int i = 0; i < 50; i++) {
+			source.add(i);
+		}
+		WindowedList<Integer> page = new WindowedList<Integer>(source, 10, 8);
+		ObservableListMirror<Integer, Integer> replayed = new ObservableListMirror<Integer, Integer>(new ObservableListMirror.MirrorFactory<Integer, Integer>() {
+			@Override
+			public Integer create(Integer original) {
+				return original;
+			}
+			
+			@Override
+			public void finished(Integer mirror) {
+			}
+		}, page);
+		
+		for (int i = 0; i < 2000; i++) {
+			int action = random.nextInt(7);
+			if (action == 0) {
+				source.add(random.nextInt(source.size() + 1), 100 + i);
+			} else if (action == 1 && !source.isEmpty()) {
+				source.remove(random.nextInt(source.size()));
+			} else if (action == 2 && source.size() > 3) {
+				int from = random.nextInt(source.size() - 2);
+				source.remove(from, from + 2);
+			} else if (action == 3) {
+				FXCollections.sort(source);
+				FXCollections.shuffle(source, random);
+			} else if (action == 4) {
+				page.setWindow(random.nextInt(30), random.nextInt(10));
+			} else if (action == 5 && source.size() > 1) {
+				source.removeAll(source.get(random.nextInt(source.size())), source.get(random.nextInt(source.size())));
+			} else if (!source.isEmpty()) {
+				source.set(random.nextInt(source.size()), 200 + i);
+			}
+			assertEquals(expected(source, page), page);
+			assertEquals(page, new ArrayList<Integer>(replayed));
+		}
+	}
+	
+	private static List<Integer> expected(List<Integer> source, WindowedList<Integer> page) {
+		int from = Math.min(page.getOffset(), source.size());
+		return source.subList(from, Math.min(page.getOffset() + page.getWindowSize(), source.size()));
+	}
+}